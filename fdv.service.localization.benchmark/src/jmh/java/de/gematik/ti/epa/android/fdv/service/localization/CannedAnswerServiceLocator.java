@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Type;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Service locator answering every lookup on the calling thread with the same TXT records, after an optional simulated network round trip
+ */
+final class CannedAnswerServiceLocator extends AbstractServiceLocator {
+
+    static final String FQDN = "kk.test.fqdn";
+    static final String RECORD_TXT = "\"txtvers=1\" \"hcid=1.2.276.0.76.3.1.91\" \"authn=/authn\" \"authz=/authz\" \"avzd=/avzd\" \"docv=/docv\" "
+            + "\"ocspf=/ocspf\" \"sgd1=/sgd1\" \"sgd2=/sgd2\"";
+    static final long TTL = 0x20000;
+
+    private final Record[] answer;
+    private final long roundTripMillis;
+
+    CannedAnswerServiceLocator(final Record[] answer, final long roundTripMillis) {
+        this.answer = answer;
+        this.roundTripMillis = roundTripMillis;
+    }
+
+    static Record[] answer(final String recordTxt) throws IOException {
+        final Name name = Name.fromString(FQDN + ".");
+        return new Record[] { Record.fromString(name, Type.TXT, DClass.IN, TTL, recordTxt, name) };
+    }
+
+    @Override
+    protected void doResolve(final String fqdn, final ThreadPoolExecutor executor, final Consumer<LookupStatus> callback) {
+        if (roundTripMillis > 0) {
+            try {
+                Thread.sleep(roundTripMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        handleAnswer(answer, callback);
+        answerCallback(callback);
+    }
+}
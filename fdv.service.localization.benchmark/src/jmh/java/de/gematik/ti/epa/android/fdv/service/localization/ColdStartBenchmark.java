@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xbill.DNS.Record;
+
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Time from creating a service locator to the first endpoint URL, resolving the FQDN versus restoring it from the {@link EndpointCache}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColdStartBenchmark {
+
+    /**
+     * Simulated network round trip of a DNSSEC TXT resolution
+     */
+    @Param({ "0", "100" })
+    public long roundTripMillis;
+
+    private Record[] answer;
+    private File cacheFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        answer = CannedAnswerServiceLocator.answer(CannedAnswerServiceLocator.RECORD_TXT);
+        cacheFile = File.createTempFile("endpoints", ".cache");
+        final CannedAnswerServiceLocator locator = new CannedAnswerServiceLocator(answer, 0);
+        final EndpointCache endpointCache = new EndpointCache(cacheFile);
+        locator.setEndpointTableListener((fqdn, endpointTable) -> endpointCache.update(fqdn, endpointTable, Runnable::run));
+        locator.lookup(CannedAnswerServiceLocator.FQDN, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cacheFile.delete();
+    }
+
+    @Benchmark
+    public Object withoutCache() {
+        final CannedAnswerServiceLocator locator = new CannedAnswerServiceLocator(answer, roundTripMillis);
+        locator.lookup(CannedAnswerServiceLocator.FQDN, null);
+        return locator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT);
+    }
+
+    @Benchmark
+    public Object withCache() {
+        final CannedAnswerServiceLocator locator = new CannedAnswerServiceLocator(answer, roundTripMillis);
+        final Map<String, EndpointTable> endpointTables = new EndpointCache(cacheFile).load(System.currentTimeMillis());
+        locator.restore(endpointTables.get(CannedAnswerServiceLocator.FQDN));
+        return locator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT);
+    }
+}
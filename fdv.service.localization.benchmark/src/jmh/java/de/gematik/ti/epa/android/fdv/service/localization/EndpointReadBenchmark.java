@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xbill.DNS.Record;
+
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Reads of a resolved service locator: single-threaded, by several threads at once and by several threads while another one keeps replacing
+ * the endpoints with a fresh answer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EndpointReadBenchmark {
+
+    private Record[] answer;
+    private CannedAnswerServiceLocator locator;
+
+    @Setup
+    public void setUp() throws IOException {
+        answer = CannedAnswerServiceLocator.answer(CannedAnswerServiceLocator.RECORD_TXT);
+        locator = new CannedAnswerServiceLocator(answer, 0);
+        locator.lookup(CannedAnswerServiceLocator.FQDN, null);
+    }
+
+    @Benchmark
+    public URL endpointURLForInterface() {
+        return locator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT);
+    }
+
+    @Benchmark
+    public String getHomeCommunityId() {
+        return locator.getHomeCommunityId();
+    }
+
+    @Benchmark
+    @Group("sharedRead")
+    @GroupThreads(4)
+    public URL sharedEndpointURLForInterface() {
+        return locator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT);
+    }
+
+    @Benchmark
+    @Group("readDuringRefresh")
+    @GroupThreads(3)
+    public URL refreshedEndpointURLForInterface() {
+        return locator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT);
+    }
+
+    @Benchmark
+    @Group("readDuringRefresh")
+    @GroupThreads(1)
+    public void refresh() {
+        locator.handleAnswer(answer);
+    }
+}
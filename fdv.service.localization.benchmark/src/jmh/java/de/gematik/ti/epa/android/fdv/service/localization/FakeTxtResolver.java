@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.Type;
+
+/**
+ * In-process fake resolver: like the DnsResolver of Android 10 it hands a DNS message in wire format to the executor, which parses it and
+ * answers the lookup
+ */
+final class FakeTxtResolver implements TxtResolver {
+
+    private final byte[] message;
+
+    FakeTxtResolver(final byte[] message) {
+        this.message = message;
+    }
+
+    static byte[] message(final String recordTxt) throws IOException {
+        final Name name = Name.fromString(CannedAnswerServiceLocator.FQDN + ".");
+        final Message answer = Message.newQuery(Record.newRecord(name, Type.TXT, DClass.IN));
+        answer.addRecord(CannedAnswerServiceLocator.answer(recordTxt)[0], Section.ANSWER);
+        return answer.toWire();
+    }
+
+    @Override
+    public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+        executor.execute(() -> {
+            final TxtAnswer txtAnswer;
+            try {
+                txtAnswer = TxtAnswer.fromMessage(message);
+            } catch (final IOException e) {
+                callback.onError(e);
+                return;
+            }
+            callback.onAnswer(txtAnswer);
+        });
+        return Cancellable.NONE;
+    }
+}
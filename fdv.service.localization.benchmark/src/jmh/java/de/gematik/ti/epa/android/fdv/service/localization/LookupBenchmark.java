@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Latency of a full lookup of a {@link ResolverServiceLocator} against an in-process fake resolver, from
+ * {@link AbstractServiceLocator#lookup} to the callback on the resolver executor. There is no network round trip, so it measures the
+ * overhead the library adds to every lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LookupBenchmark {
+
+    private ResolverServiceLocator locator;
+
+    @Setup
+    public void setUp() throws IOException {
+        locator = new ResolverServiceLocator(new FakeTxtResolver(FakeTxtResolver.message(CannedAnswerServiceLocator.RECORD_TXT)));
+    }
+
+    @Benchmark
+    public LookupStatus lookup() {
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        locator.lookup(CannedAnswerServiceLocator.FQDN, lookupStatus::complete);
+        return lookupStatus.join();
+    }
+}
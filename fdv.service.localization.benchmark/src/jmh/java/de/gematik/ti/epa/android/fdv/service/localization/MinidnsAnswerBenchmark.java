@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.minidns.record.Data;
+import org.minidns.record.TXT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.TXTRecord;
+
+/**
+ * Turning the minidns result of ServiceLocatorV9 into gateway module paths: the former conversion into dnsjava Records followed by the string
+ * round trip versus reading the TXT data of the minidns answer section. Run with {@code -prof gc} to compare the allocation per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MinidnsAnswerBenchmark {
+
+    private static final String[] CHARACTER_STRINGS = { "txtvers=1", "hcid=1.2.276.0.76.3.1.91", "authn=/authn", "authz=/authz", "avzd=/avzd",
+            "docv=/docv", "ocspf=/ocspf", "sgd1=/sgd1", "sgd2=/sgd2" };
+
+    private Set<TXT> answers;
+    private List<org.minidns.record.Record<? extends Data>> answerSection;
+
+    @Setup
+    public void setUp() {
+        final ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        for (final String characterString : CHARACTER_STRINGS) {
+            final byte[] bytes = characterString.getBytes(StandardCharsets.US_ASCII);
+            blob.write(bytes.length);
+            blob.write(bytes, 0, bytes.length);
+        }
+        final TXT txt = new TXT(blob.toByteArray());
+        answers = Collections.singleton(txt);
+        answerSection = Collections.singletonList(new org.minidns.record.Record<>(CannedAnswerServiceLocator.FQDN,
+                org.minidns.record.Record.TYPE.TXT, org.minidns.record.Record.CLASS.IN, CannedAnswerServiceLocator.TTL, txt, false));
+    }
+
+    @Benchmark
+    public Map<String, GatewayModulePathType> dnsjavaConversion() throws IOException {
+        final List<Record> records = new ArrayList<>();
+        final Name name = Name.fromString(CannedAnswerServiceLocator.FQDN + ".");
+        for (final TXT txt : answers) {
+            records.add(Record.fromString(name, org.minidns.record.Record.TYPE.TXT.getValue(), DClass.ANY, CannedAnswerServiceLocator.TTL,
+                    txt.getText(), name));
+        }
+        final Map<String, GatewayModulePathType> dnsTxtRecordValues = new HashMap<>();
+        for (final Record record : records.toArray(new Record[0])) {
+            final String rData = record.rdataToString().replaceAll("\"", "");
+            final List<String> rDataTokens = Arrays.asList(rData.split("\\s+"));
+            final TXTRecord txtRecord = new TXTRecord(record.getName(), record.getDClass(), record.getTTL(), rDataTokens);
+            for (final Object string : txtRecord.getStrings()) {
+                final String token = (String) string;
+                if (token.contains("=")) {
+                    final String[] splitToken = token.trim().split("=", 2);
+                    if (splitToken.length == 2 && !"txtvers".equals(splitToken[0])) {
+                        dnsTxtRecordValues.put(splitToken[0], new GatewayModulePathType(splitToken[1], record.getTTL()));
+                    }
+                }
+            }
+        }
+        return dnsTxtRecordValues;
+    }
+
+    @Benchmark
+    public Map<String, GatewayModulePathType> nativeAnswer() throws IOException {
+        return MinidnsTxtResolver.toTxtAnswer(answerSection, answers).toGatewayModulePaths();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TXTRecord;
+import org.xbill.DNS.Type;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Parsing a TXT answer into gateway module paths: the former rdataToString/split/TXTRecord round trip versus the wire format parser, and
+ * the whole answer handling of a service locator including its endpoint table. Run with {@code -prof gc} to compare the allocation per
+ * answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TxtParseBenchmark {
+
+    /**
+     * Length of the gateway module paths: the ones of the specification or long ones as of a deeper deployment
+     */
+    @Param({ "short", "long" })
+    public String paths;
+
+    private Record[] records;
+    private byte[] message;
+    private CannedAnswerServiceLocator locator;
+
+    @Setup
+    public void setUp() throws IOException {
+        final String prefix = "long".equals(paths) ? "/epa/gateway/v1.2.0/tenant-0815" : "";
+        final String recordTxt = "\"txtvers=1\" \"hcid=1.2.276.0.76.3.1.91\" \"authn=" + prefix + "/authn\" \"authz=" + prefix + "/authz\" \"avzd="
+                + prefix + "/avzd\" \"docv=" + prefix + "/docv\" \"ocspf=" + prefix + "/ocspf\" \"sgd1=" + prefix + "/sgd1\" \"sgd2=" + prefix + "/sgd2\"";
+        records = CannedAnswerServiceLocator.answer(recordTxt);
+        final Name name = records[0].getName();
+        final Message answer = Message.newQuery(Record.newRecord(name, Type.TXT, DClass.IN));
+        answer.addRecord(records[0], Section.ANSWER);
+        message = answer.toWire();
+        locator = new CannedAnswerServiceLocator(records, 0);
+        locator.lookup(CannedAnswerServiceLocator.FQDN, null);
+    }
+
+    @Benchmark
+    public Map<String, GatewayModulePathType> stringRoundTrip() {
+        final Map<String, GatewayModulePathType> dnsTxtRecordValues = new HashMap<>();
+        for (final Record record : records) {
+            final String rData = record.rdataToString().replaceAll("\"", "");
+            final List<String> rDataTokens = Arrays.asList(rData.split("\\s+"));
+            final TXTRecord txtRecord = new TXTRecord(record.getName(), record.getDClass(), record.getTTL(), rDataTokens);
+            for (final Object string : txtRecord.getStrings()) {
+                final String token = (String) string;
+                if (token.contains("=")) {
+                    final String[] splitToken = token.trim().split("=", 2);
+                    if (splitToken.length == 2 && !"txtvers".equals(splitToken[0])) {
+                        dnsTxtRecordValues.put(splitToken[0], new GatewayModulePathType(splitToken[1], record.getTTL()));
+                    }
+                }
+            }
+        }
+        return dnsTxtRecordValues;
+    }
+
+    @Benchmark
+    public Map<String, GatewayModulePathType> wireFormatRecordData() throws IOException {
+        final Map<String, GatewayModulePathType> dnsTxtRecordValues = new HashMap<>();
+        for (final Record record : records) {
+            final byte[] rdata = record.rdataToWireCanonical();
+            TxtRecordParser.parseRdata(rdata, 0, rdata.length, record.getTTL(), dnsTxtRecordValues);
+        }
+        return dnsTxtRecordValues;
+    }
+
+    @Benchmark
+    public Map<String, GatewayModulePathType> wireFormatMessage() throws IOException {
+        return TxtRecordParser.parseMessage(message);
+    }
+
+    @Benchmark
+    public Map<String, GatewayModulePathType> dnsjavaMessage() throws IOException {
+        final Map<String, GatewayModulePathType> dnsTxtRecordValues = new HashMap<>();
+        for (final Record record : new Message(message).getSectionArray(Section.ANSWER)) {
+            final byte[] rdata = record.rdataToWireCanonical();
+            TxtRecordParser.parseRdata(rdata, 0, rdata.length, record.getTTL(), dnsTxtRecordValues);
+        }
+        return dnsTxtRecordValues;
+    }
+
+    @Benchmark
+    public LookupStatus fillDnsTxtRecordValues() {
+        locator.handleAnswer(records);
+        return locator.getLookupStatus();
+    }
+}
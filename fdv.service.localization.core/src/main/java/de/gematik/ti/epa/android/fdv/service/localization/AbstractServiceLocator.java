@@ -0,0 +1,935 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import org.xbill.DNS.Record;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+import de.gematik.ti.epa.fdv.service.localization.spi.IServiceLocalizer;
+
+abstract class AbstractServiceLocator implements IServiceLocalizer {
+    private final AtomicReference<LocatorState> state = new AtomicReference<>(LocatorState.INITIAL);
+    private volatile long serveStaleMillis;
+    private volatile long maxInFlightAgeMillis = Long.MAX_VALUE;
+    private volatile long lookupTimeoutMillis = Long.MAX_VALUE;
+    private volatile ThreadPoolExecutor executor;
+    private volatile Executor callbackExecutor;
+    private volatile RefreshAheadPolicy refreshAheadPolicy;
+    private volatile RetryPolicy retryPolicy;
+    private volatile NegativeCachePolicy negativeCachePolicy;
+    private volatile EndpointFailurePolicy endpointFailurePolicy;
+    private final AtomicIntegerArray endpointFailures = new AtomicIntegerArray(ServiceInterfaceName.values().length);
+    private final AtomicLong failureLookupAt = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicReference<ScheduledFuture<?>> scheduledRefresh = new AtomicReference<>();
+    private final AtomicInteger refreshFailures = new AtomicInteger();
+    private volatile BiConsumer<String, EndpointTable> endpointTableListener;
+    private final List<GatewayTableSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile MonotonicClock clock = PlatformClock.INSTANCE;
+    private volatile LookupMetricsListener metricsListener;
+    private volatile FlightRecorder flightRecorder = new FlightRecorder(FlightRecorder.DEFAULT_CAPACITY);
+
+    /**
+     * Returns the status of service lookup in DNS
+     *
+     * @return status of service lookup in DNS
+     */
+    public LookupStatus getLookupStatus() {
+        final LocatorState current = state.get();
+        if (!current.isRunning()) {
+            return current.getLookupStatus();
+        } else {
+            return LookupStatus.IN_PROGRESS;
+        }
+    }
+
+    /**
+     * start a new DNS lookup, e.g. if previous one ended erroneously. While a lookup of the same FQDN is running, the callback joins it
+     * instead and gets its result. A lookup of another FQDN supersedes the running one, whose callbacks get
+     * {@link LookupStatus#ERROR}. While the negative result of the FQDN is cached, the callback gets it right away without a new query. The
+     * callback is called on the callback executor of this locator, by default a thread shared by all locators, never on a resolver thread.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param callback
+     *            optional Consumer parameter to get callback the lookup status
+     */
+    @Override
+    public void lookup(final String fqdn, final Consumer<LookupStatus> callback) {
+        lookup(fqdn, callback != null ? getCallbackExecutor() : null, callback);
+    }
+
+    /**
+     * start a new DNS lookup like {@link #lookup(String, Consumer)}, the callback is called on the given executor, e.g. the main thread of
+     * the app. The callbacks of one lookup on the same executor are called one after the other in one task.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param executor
+     *            executor to call the callback on, it is called on the thread delivering the result if the executor rejects it
+     * @param callback
+     *            optional Consumer parameter to get callback the lookup status
+     */
+    public void lookup(final String fqdn, final Executor executor, final Consumer<LookupStatus> callback) {
+        lookupWithCallback(fqdn, callback != null ? new ExecutorCallback(executor, callback) : null);
+    }
+
+    private void lookupWithCallback(final String fqdn, final ExecutorCallback callback) {
+        final LocatorState current = state.get();
+        if (negativeCachePolicy != null && current.isNegativelyCached(fqdn, clock.millis())) {
+            final LookupMetricsListener listener = metricsListener;
+            if (listener != null) {
+                listener.onNegativeCacheHit(fqdn, current.getLookupStatus());
+            }
+            final FlightRecorder recorder = flightRecorder;
+            if (recorder != null) {
+                recorder.recordNegativeCacheHit(fqdn, current.getLookupStatus());
+            }
+            if (callback != null) {
+                InFlightLookup.deliver(Collections.singletonList(callback), current.getLookupStatus(),
+                        () -> getLookupResult(fqdn, current.getLookupStatus(), current));
+            }
+            return;
+        }
+        startLookup(fqdn, callback, false);
+    }
+
+    /**
+     * Resolves the FQDN of the served table again right away, e.g. after the device switched networks. The table is still served until the
+     * new answer arrives, a cached negative result is dropped and a lookup still running on the previous network is superseded, its
+     * callbacks get the result of the new one.
+     */
+    void revalidate() {
+        final LocatorState current = state.updateAndGet(previous -> previous.withNegativeUntil(Long.MIN_VALUE));
+        if (current.getFqdn() != null) {
+            startLookup(current.getFqdn(), null, true);
+        }
+    }
+
+    /**
+     * Counts a failed request to the endpoint of the given interface, e.g. a connection error or 404 after the gateway moved. Once the
+     * failures in a row reach the threshold of the endpoint failure policy, the FQDN is resolved again in the background, at most once per
+     * interval of the policy. The cache of the resolver is flushed first, so the lookup does not return the paths that failed. A running lookup
+     * is joined instead.
+     *
+     * @param serviceInterfaceName
+     *            name of the gateway interface whose endpoint failed
+     */
+    void reportEndpointFailure(final ServiceInterfaceName serviceInterfaceName) {
+        final EndpointFailurePolicy policy = endpointFailurePolicy;
+        if (policy == null) {
+            return;
+        }
+        final int index = serviceInterfaceName.ordinal();
+        final int failures = endpointFailures.incrementAndGet(index);
+        if (failures < policy.getFailureThreshold() || !endpointFailures.compareAndSet(index, failures, 0)) {
+            return;
+        }
+        final long now = clock.millis();
+        final long previous = failureLookupAt.get();
+        if (previous != Long.MIN_VALUE && now - previous < policy.getMinResolveIntervalMillis() || !failureLookupAt.compareAndSet(previous, now)) {
+            return;
+        }
+        final String fqdn = state.get().getFqdn();
+        if (fqdn == null) {
+            return;
+        }
+        final FlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.recordEndpointFailures(fqdn, serviceInterfaceName, failures);
+        }
+        flushResolverCache();
+        startLookup(fqdn, null, false);
+    }
+
+    /**
+     * Counts a successful request to the endpoint of the given interface, which ends its failures in a row
+     *
+     * @param serviceInterfaceName
+     *            name of the gateway interface whose endpoint answered
+     */
+    void reportEndpointSuccess(final ServiceInterfaceName serviceInterfaceName) {
+        if (endpointFailurePolicy != null) {
+            endpointFailures.set(serviceInterfaceName.ordinal(), 0);
+        }
+    }
+
+    /**
+     * Enables or disables resolving the FQDN again after failures of its endpoints
+     *
+     * @param endpointFailurePolicy
+     *            when failures reported by {@link #reportEndpointFailure(ServiceInterfaceName)} start a lookup, null to ignore them
+     */
+    void setEndpointFailurePolicy(final EndpointFailurePolicy endpointFailurePolicy) {
+        this.endpointFailurePolicy = endpointFailurePolicy;
+    }
+
+    private void startLookup(final String fqdn, final Consumer<LookupStatus> callback, final boolean restart) {
+        final InFlightLookup lookup = joinOrStartLookup(fqdn, callback, restart);
+        if (lookup == null) {
+            return;
+        }
+        final FlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.recordLookupStarted(fqdn, getBackendName());
+        }
+        cancelRefresh();
+        resolve(lookup);
+        final long timeoutMillis = lookupTimeoutMillis;
+        if (timeoutMillis != Long.MAX_VALUE) {
+            lookup.setDeadline(ResolverExecutor.getScheduler().schedule(() -> abort(lookup, true), timeoutMillis, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Hands the query of the given lookup to the backend, a rejected query fails like an unanswered one
+     */
+    private void resolve(final InFlightLookup lookup) {
+        final ThreadPoolExecutor lookupExecutor = executor != null ? executor : ResolverExecutor.getExecutor();
+        try {
+            doResolve(lookup.getFqdn(), lookupExecutor, lookup);
+        } catch (final RejectedExecutionException e) {
+            handleError(lookup, e);
+            answerCallback(lookup);
+        } catch (final RuntimeException e) {
+            handleError(lookup, e);
+            answerCallback(lookup);
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the query of the given failed lookup again after the backoff of the retry policy, its callbacks keep waiting
+     *
+     * @return true if a retry was scheduled, false if the lookup ends now
+     */
+    private boolean scheduleRetry(final InFlightLookup lookup) {
+        final RetryPolicy policy = retryPolicy;
+        final LocatorState current = state.get();
+        if (policy == null || current.getInFlightLookup() != lookup || current.getLookupStatus() != LookupStatus.ERROR) {
+            return false;
+        }
+        final int retry = lookup.startRetry(policy.getMaxAttempts());
+        if (retry == 0) {
+            return false;
+        }
+        final long backoffMillis = policy.nextBackoff(retry);
+        try {
+            ResolverExecutor.getScheduler().schedule(() -> {
+                // a cancelled or superseded lookup is not resolved again
+                if (state.get().getInFlightLookup() == lookup) {
+                    resolve(lookup);
+                }
+            }, backoffMillis, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            return false;
+        }
+        final FlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.recordRetry(lookup.getFqdn(), retry, backoffMillis);
+        }
+        return true;
+    }
+
+    /**
+     * Cancels the running lookup: the query of the backend is cancelled and the callbacks get {@link LookupStatus#ERROR} right away
+     *
+     * @return false if no lookup was running
+     */
+    boolean cancel() {
+        final InFlightLookup running = state.get().getInFlightLookup();
+        return running != null && abort(running, false);
+    }
+
+    /**
+     * Ends the given lookup with {@link LookupStatus#ERROR} unless it already ended, the last table is served as stale like after any error
+     */
+    private boolean abort(final InFlightLookup lookup, final boolean timedOut) {
+        final LocatorState previous = state.getAndUpdate(
+                current -> current.getInFlightLookup() == lookup ? current.withoutInFlightLookup().withLookupStatus(LookupStatus.ERROR) : current);
+        if (previous.getInFlightLookup() != lookup) {
+            return false;
+        }
+        lookup.cancelQuery();
+        notifyLookupCompleted(lookup, LookupStatus.ERROR, timedOut ? "timeout" : "cancelled");
+        scheduleRefreshAfterFailure();
+        if (timedOut) {
+            lookup.timeOut();
+        } else {
+            final LocatorState aborted = previous.withoutInFlightLookup().withLookupStatus(LookupStatus.ERROR);
+            lookup.complete(LookupStatus.ERROR, () -> getLookupResult(lookup.getFqdn(), LookupStatus.ERROR, aborted));
+        }
+        return true;
+    }
+
+    /**
+     * Joins the running lookup of the same FQDN or registers a new one
+     *
+     * @param restart
+     *            true to supersede a running lookup of the same FQDN instead of joining it
+     * @return the new lookup to resolve or null if the callback joined the running one
+     */
+    private InFlightLookup joinOrStartLookup(final String fqdn, final Consumer<LookupStatus> callback, final boolean restart) {
+        while (true) {
+            final LocatorState current = state.get();
+            final InFlightLookup running = current.getInFlightLookup();
+            final long now = clock.millis();
+            if (!restart && running != null && running.isFor(fqdn) && now - running.getStartedAt() <= maxInFlightAgeMillis) {
+                if (running.join(callback)) {
+                    return null;
+                }
+                // completed in the meantime, the state without it is about to be published
+            } else {
+                final InFlightLookup lookup = new InFlightLookup(fqdn, now, callback);
+                if (state.compareAndSet(current, current.startLookup(lookup))) {
+                    if (running != null) {
+                        supersede(running, lookup);
+                    }
+                    return lookup;
+                }
+            }
+        }
+    }
+
+    private void supersede(final InFlightLookup superseded, final InFlightLookup lookup) {
+        superseded.cancelQuery();
+        final FlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.recordLookupEnded(superseded.getFqdn(), getBackendName(), LookupStatus.ERROR, System.nanoTime() - superseded.getStartedNanos(),
+                    "superseded");
+        }
+        final List<Consumer<LookupStatus>> callbacks = superseded.takeOverCallbacks();
+        if (superseded.isFor(lookup.getFqdn())) {
+            for (final Consumer<LookupStatus> callback : callbacks) {
+                lookup.join(callback);
+            }
+        } else {
+            InFlightLookup.deliver(callbacks, LookupStatus.ERROR, () -> getLookupResult(superseded.getFqdn(), LookupStatus.ERROR, state.get()));
+        }
+    }
+
+    /**
+     * Sets the listener receiving the metrics of lookups and endpoint reads
+     *
+     * @param metricsListener
+     *            listener called on the resolver and calling threads, null to measure nothing
+     */
+    void setMetricsListener(final LookupMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Prepares the backend of this locator ahead of the first lookup, called on a background thread
+     */
+    void warmUp() {
+        // Nothing
+    }
+
+    /**
+     * Drops what the backend of this locator cached, so its next query reaches the name servers, e.g. after the device switched networks
+     */
+    void flushResolverCache() {
+        // Nothing
+    }
+
+    /**
+     * Returns the name of the backend resolving the lookups of this locator, reported to the {@link LookupMetricsListener}
+     *
+     * @return name of the backend
+     */
+    String getBackendName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Sets the recorder keeping the last events of the lookups of this locator
+     *
+     * @param flightRecorder
+     *            recorder, e.g. shared by all locators of a registry, null to record nothing
+     */
+    void setFlightRecorder(final FlightRecorder flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    /**
+     * Returns the recorder keeping the last events of the lookups of this locator, e.g. to attach its {@link FlightRecorder#dump()} to a
+     * bug report
+     *
+     * @return recorder, null if recording is disabled
+     */
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    private void notifyLookupCompleted(final InFlightLookup lookup, final LookupStatus lookupStatus, final String reason) {
+        final LookupMetricsListener listener = metricsListener;
+        final FlightRecorder recorder = flightRecorder;
+        if (listener == null && recorder == null) {
+            return;
+        }
+        final long latencyNanos = System.nanoTime() - lookup.getStartedNanos();
+        if (listener != null) {
+            listener.onLookupCompleted(lookup.getFqdn(), getBackendName(), lookupStatus, latencyNanos);
+        }
+        if (recorder != null) {
+            recorder.recordLookupEnded(lookup.getFqdn(), getBackendName(), lookupStatus, latencyNanos, reason);
+        }
+    }
+
+    /**
+     * Sets the executor the callbacks of {@link #lookup(String, Consumer)} are called on
+     *
+     * @param callbackExecutor
+     *            executor owned by the caller, null for the process-wide callback executor of {@link ResolverExecutor}
+     */
+    void setCallbackExecutor(final Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    private Executor getCallbackExecutor() {
+        final Executor current = callbackExecutor;
+        return current != null ? current : ResolverExecutor.getCallbackExecutor();
+    }
+
+    /**
+     * Lets this locator resolve on the given executor instead of the process-wide {@link ResolverExecutor}
+     *
+     * @param executor
+     *            executor owned by the caller, it is never shut down by this locator
+     */
+    void setExecutor(final ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets how long the last successfully resolved table is served beyond its TTL while a lookup is running or after it failed, in the
+     * spirit of RFC 8767
+     *
+     * @param serveStaleMillis
+     *            serve-stale window in milliseconds, 0 to serve nothing after the TTL
+     */
+    void setServeStaleMillis(final long serveStaleMillis) {
+        if (serveStaleMillis < 0) {
+            throw new IllegalArgumentException("serveStaleMillis must not be negative but was " + serveStaleMillis);
+        }
+        this.serveStaleMillis = serveStaleMillis;
+    }
+
+    /**
+     * Sets the clock expiry times, negative results and the age of running lookups are measured in
+     *
+     * @param clock
+     *            monotonic clock, e.g. a virtual one in tests
+     */
+    void setClock(final MonotonicClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the listener notified on the resolver thread whenever a lookup replaced the served table
+     *
+     * @param endpointTableListener
+     *            listener getting the FQDN and its new table, which is {@link EndpointTable#EMPTY} after a missing TXT record; null for none
+     */
+    void setEndpointTableListener(final BiConsumer<String, EndpointTable> endpointTableListener) {
+        this.endpointTableListener = endpointTableListener;
+    }
+
+    /**
+     * Serves a table restored from a previous process until the first lookup replaces it. Ignored once a lookup was started.
+     *
+     * @param endpointTable
+     *            restored table of the FQDN of this locator
+     */
+    void restore(final EndpointTable endpointTable) {
+        if (state.compareAndSet(LocatorState.INITIAL, LocatorState.restored(endpointTable))) {
+            scheduleRefresh();
+        }
+    }
+
+    /**
+     * Sets the age after which a running lookup is no longer joined, but a new query is sent and the callbacks of the old one wait for the
+     * new one
+     *
+     * @param maxInFlightAgeMillis
+     *            maximum age in milliseconds of a running lookup to join
+     */
+    void setMaxInFlightAgeMillis(final long maxInFlightAgeMillis) {
+        if (maxInFlightAgeMillis < 0) {
+            throw new IllegalArgumentException("maxInFlightAgeMillis must not be negative but was " + maxInFlightAgeMillis);
+        }
+        this.maxInFlightAgeMillis = maxInFlightAgeMillis;
+    }
+
+    /**
+     * Sets the time after which a lookup is cancelled and ends with {@link LookupStatus#ERROR}, so a backend that does not answer cannot keep
+     * the lookup running
+     *
+     * @param lookupTimeoutMillis
+     *            deadline of each lookup in milliseconds, Long.MAX_VALUE for none
+     */
+    void setLookupTimeoutMillis(final long lookupTimeoutMillis) {
+        if (lookupTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("lookupTimeoutMillis must be positive but was " + lookupTimeoutMillis);
+        }
+        this.lookupTimeoutMillis = lookupTimeoutMillis;
+    }
+
+    /**
+     * Enables or disables sending the query of a failed lookup again
+     *
+     * @param retryPolicy
+     *            when to retry a lookup ending with {@link LookupStatus#ERROR}, null to end it right away
+     */
+    void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Enables or disables caching the result of failed and empty lookups
+     *
+     * @param negativeCachePolicy
+     *            how long lookups ending with {@link LookupStatus#ERROR} or {@link LookupStatus#MISSING_TXT_RECORD} are cached, null to cache
+     *            none
+     */
+    void setNegativeCachePolicy(final NegativeCachePolicy negativeCachePolicy) {
+        this.negativeCachePolicy = negativeCachePolicy;
+    }
+
+    /**
+     * Enables or disables resolving the TXT records again in the background before the first of them expires
+     *
+     * @param refreshAheadPolicy
+     *            when to refresh after a successful lookup, null to disable refreshes
+     */
+    void setRefreshAheadPolicy(final RefreshAheadPolicy refreshAheadPolicy) {
+        this.refreshAheadPolicy = refreshAheadPolicy;
+        if (refreshAheadPolicy == null) {
+            cancelRefresh();
+        } else if (!state.get().isStaleAllowed()) {
+            scheduleRefresh();
+        }
+    }
+
+    private void scheduleRefresh() {
+        final RefreshAheadPolicy policy = refreshAheadPolicy;
+        if (policy == null) {
+            return;
+        }
+        refreshFailures.set(0);
+        final long lifetime = state.get().getEndpointTable().getEarliestValidUntil() - clock.millis();
+        scheduleRefresh(policy.nextRefreshDelay(lifetime));
+    }
+
+    /**
+     * Schedules the next refresh after a lookup ended without a new table, e.g. a refresh failed, as long as the served table has not
+     * expired. The lookup cancelled the refresh scheduled before, without this a single failure would end refreshing.
+     */
+    private void scheduleRefreshAfterFailure() {
+        final RefreshAheadPolicy policy = refreshAheadPolicy;
+        final LocatorState current = state.get();
+        final EndpointTable endpointTable = current.getEndpointTable();
+        // no table to keep fresh, or the failed lookup was for another FQDN
+        if (policy == null || !endpointTable.isFor(current.getFqdn())) {
+            return;
+        }
+        final long lifetime = endpointTable.getEarliestValidUntil() - clock.millis();
+        if (lifetime > 0) {
+            scheduleRefresh(policy.nextRetryDelay(refreshFailures.incrementAndGet(), lifetime));
+        }
+    }
+
+    private void scheduleRefresh(final long delayMillis) {
+        final String refreshFqdn = state.get().getFqdn();
+        // refreshes only update the served table, they have no callback and are not answered from the negative cache
+        final ScheduledFuture<?> next = ResolverExecutor.getScheduler().schedule(() -> startLookup(refreshFqdn, null, false), delayMillis,
+                TimeUnit.MILLISECONDS);
+        final ScheduledFuture<?> previous = scheduledRefresh.getAndSet(next);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (refreshAheadPolicy == null) {
+            // disabled while scheduling
+            cancelRefresh();
+        }
+    }
+
+    private void cancelRefresh() {
+        final ScheduledFuture<?> previous = scheduledRefresh.getAndSet(null);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    protected abstract void doResolve(final String fqdn, final ThreadPoolExecutor executor, final Consumer<LookupStatus> callback);
+
+    void handleAnswer(final Record[] records) {
+        fillDnsTxtRecordValues(records);
+    }
+
+    /**
+     * Publishes the answer of the lookup the given callback belongs to, unless it was superseded by another lookup
+     *
+     * @param records
+     *            TXT records of the answer
+     * @param callback
+     *            callback passed to {@link #doResolve(String, ThreadPoolExecutor, Consumer)}
+     */
+    void handleAnswer(final Record[] records, final Consumer<LookupStatus> callback) {
+        if (isSuperseded(callback)) {
+            return;
+        }
+        fillDnsTxtRecordValues(records, toLookup(callback));
+    }
+
+    /**
+     * Publishes the TXT records of the answer of the lookup the given callback belongs to, unless it was superseded by another lookup
+     *
+     * @param txtAnswer
+     *            TXT records of the answer, empty if the answer has none
+     * @param callback
+     *            callback passed to {@link #doResolve(String, ThreadPoolExecutor, Consumer)}
+     * @throws IOException
+     *             if a TXT record is malformed
+     */
+    void handleAnswer(final TxtAnswer txtAnswer, final Consumer<LookupStatus> callback) throws IOException {
+        if (isSuperseded(callback)) {
+            return;
+        }
+        final InFlightLookup lookup = toLookup(callback);
+        final LookupMetricsListener listener = metricsListener;
+        final FlightRecorder recorder = flightRecorder;
+        if (listener == null && recorder == null) {
+            fillDnsTxtRecordValues(txtAnswer.toGatewayModulePaths(clock.millis()), txtAnswer.getNegativeTtl(), lookup);
+            return;
+        }
+        final long parseStart = System.nanoTime();
+        final Map<String, GatewayModulePathType> gatewayModulePaths = txtAnswer.toGatewayModulePaths(clock.millis());
+        final String fqdn = lookup != null ? lookup.getFqdn() : state.get().getFqdn();
+        if (listener != null) {
+            listener.onAnswerParsed(fqdn, txtAnswer.size(), System.nanoTime() - parseStart);
+        }
+        if (recorder != null) {
+            recorder.recordAnswer(fqdn, txtAnswer, gatewayModulePaths);
+        }
+        fillDnsTxtRecordValues(gatewayModulePaths, txtAnswer.getNegativeTtl(), lookup);
+    }
+
+    /**
+     * Records the failure of the lookup the given callback belongs to, unless it was superseded by another lookup
+     *
+     * @param callback
+     *            callback passed to {@link #doResolve(String, ThreadPoolExecutor, Consumer)}
+     */
+    void handleError(final Consumer<LookupStatus> callback) {
+        publish(toLookup(callback), current -> current.withLookupStatus(LookupStatus.ERROR));
+    }
+
+    /**
+     * Records the failure of the lookup the given callback belongs to together with its cause, unless it was superseded by another lookup
+     *
+     * @param callback
+     *            callback passed to {@link #doResolve(String, ThreadPoolExecutor, Consumer)}
+     * @param e
+     *            cause of the failure, kept by the {@link FlightRecorder}
+     */
+    void handleError(final Consumer<LookupStatus> callback, final Exception e) {
+        final FlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.recordError(callback instanceof InFlightLookup ? ((InFlightLookup) callback).getFqdn() : state.get().getFqdn(), e);
+        }
+        handleError(callback);
+    }
+
+    private boolean isSuperseded(final Consumer<LookupStatus> callback) {
+        return callback instanceof InFlightLookup && state.get().getInFlightLookup() != callback;
+    }
+
+    private static InFlightLookup toLookup(final Consumer<LookupStatus> callback) {
+        return callback instanceof InFlightLookup ? (InFlightLookup) callback : null;
+    }
+
+    /**
+     * Applies the outcome of the given lookup to the state, only as long as it is the running lookup: a lookup of another FQDN may supersede
+     * it at any time until the update is committed
+     *
+     * @param lookup
+     *            lookup the outcome belongs to, null for a locator resolving without {@link InFlightLookup}, whose outcome always applies
+     * @param update
+     *            change of the state
+     * @return the updated state, null if the lookup was superseded and the outcome dropped
+     */
+    private LocatorState publish(final InFlightLookup lookup, final UnaryOperator<LocatorState> update) {
+        while (true) {
+            final LocatorState current = state.get();
+            if (lookup != null && current.getInFlightLookup() != lookup) {
+                return null;
+            }
+            final LocatorState updated = update.apply(current);
+            if (state.compareAndSet(current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    private void handleMissingTxtRecord(final long negativeTtl, final InFlightLookup lookup) {
+        final NegativeCachePolicy policy = negativeCachePolicy;
+        final long negativeUntil = policy != null ? clock.millis() + policy.missingTxtRecordMillis(negativeTtl) : Long.MIN_VALUE;
+        // an answer without TXT records is no resolver failure, so the previous table is not served as stale
+        final LocatorState missing = publish(lookup,
+                current -> current.withEndpointTable(EndpointTable.EMPTY, LookupStatus.MISSING_TXT_RECORD).withNegativeUntil(negativeUntil));
+        if (missing != null) {
+            notifyEndpointTableListener(missing.getFqdn(), EndpointTable.EMPTY);
+        }
+    }
+
+    private void notifyEndpointTableListener(final String fqdn, final EndpointTable endpointTable) {
+        final BiConsumer<String, EndpointTable> listener = endpointTableListener;
+        if (listener != null) {
+            listener.accept(fqdn, endpointTable);
+        }
+        for (final GatewayTableSubscription subscription : subscriptions) {
+            subscription.tableReplaced();
+        }
+    }
+
+    /**
+     * Subscribes to the changes of the served table like {@link #subscribe(Executor, Consumer)}, the listener is called on the callback
+     * executor of this locator
+     *
+     * @param listener
+     *            listener of the updates
+     * @return subscription to cancel
+     */
+    public GatewayTableSubscription subscribe(final Consumer<GatewayTableUpdate> listener) {
+        return subscribe(getCallbackExecutor(), listener);
+    }
+
+    /**
+     * Subscribes to the changes of the served table. The listener gets the current table right away unless it is empty, and afterwards
+     * every table of a lookup or refresh whose gateway module paths differ from the ones it got last. A slow listener does not hold back
+     * lookups, it gets only the latest table once it returned.
+     *
+     * @param executor
+     *            executor to call the listener on
+     * @param listener
+     *            listener of the updates
+     * @return subscription to cancel
+     */
+    public GatewayTableSubscription subscribe(final Executor executor, final Consumer<GatewayTableUpdate> listener) {
+        final GatewayTableSubscription subscription = new GatewayTableSubscription(executor, listener, () -> state.get().getEndpointTable(),
+                subscriptions::remove);
+        subscriptions.add(subscription);
+        subscription.tableReplaced();
+        return subscription;
+    }
+
+    /**
+     * Ends all subscriptions to the changes of the served table, e.g. after the locator was removed from its registry
+     */
+    void cancelSubscriptions() {
+        for (final GatewayTableSubscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * After successful lookup, it returns endpointURL for a given interface name
+     *
+     * @param serviceInterfaceName
+     *            name of the gateway interface where to get the URL for
+     * @return URL of given interface name
+     */
+    @Override
+    public URL endpointURLForInterface(final ServiceInterfaceName serviceInterfaceName) {
+        final LocatorState current = state.get();
+        final LookupMetricsListener listener = metricsListener;
+        if (listener == null) {
+            return current.getEndpointTable().getEndpointURL(serviceInterfaceName, validAt(current));
+        }
+        final long now = clock.millis();
+        final EndpointTable endpointTable = current.getEndpointTable();
+        final URL url = endpointTable.getEndpointURL(serviceInterfaceName, validAt(current, now));
+        final LookupMetricsListener.EndpointRead endpointRead;
+        if (url == null) {
+            // valid at the earliest time, the entry exists however long ago it expired
+            endpointRead = endpointTable.getEndpointURL(serviceInterfaceName, Long.MIN_VALUE) != null ? LookupMetricsListener.EndpointRead.EXPIRED
+                    : LookupMetricsListener.EndpointRead.MISS;
+        } else {
+            endpointRead = endpointTable.getEndpointURL(serviceInterfaceName, now) != null ? LookupMetricsListener.EndpointRead.HIT
+                    : LookupMetricsListener.EndpointRead.STALE;
+        }
+        listener.onEndpointRead(serviceInterfaceName, endpointRead);
+        return url;
+    }
+
+    private long validAt(final LocatorState current) {
+        return validAt(current, clock.millis());
+    }
+
+    /**
+     * Returns the point in time entries must be valid at to be served, earlier than now within the serve-stale window while the last
+     * table could not be refreshed
+     */
+    private long validAt(final LocatorState current, final long now) {
+        if (current.isStaleAllowed()) {
+            return now - serveStaleMillis;
+        }
+        return now;
+    }
+
+    private void fillDnsTxtRecordValues(final Record[] records) {
+        fillDnsTxtRecordValues(records, null);
+    }
+
+    private void fillDnsTxtRecordValues(final Record[] records, final InFlightLookup lookup) {
+        try {
+            fillDnsTxtRecordValues(TxtAnswer.of(records).toGatewayModulePaths(clock.millis()), -1, lookup);
+        } catch (final IOException e) {
+            throw new ServiceLocatorException("Invalid TXT record in DNS Response found.", e);
+        }
+    }
+
+    private void fillDnsTxtRecordValues(final Map<String, GatewayModulePathType> dnsTxtRecordValues, final long negativeTtl,
+            final InFlightLookup lookup) {
+        if (dnsTxtRecordValues.size() > 0) {
+            final EndpointTable endpointTable = EndpointTable.build(lookup != null ? lookup.getFqdn() : state.get().getFqdn(), dnsTxtRecordValues);
+            if (publish(lookup, current -> current.withEndpointTable(endpointTable, LookupStatus.SUCCESS)) == null) {
+                return;
+            }
+            scheduleRefresh();
+            notifyEndpointTableListener(endpointTable.getFqdn(), endpointTable);
+        } else {
+            handleMissingTxtRecord(negativeTtl, lookup);
+        }
+    }
+
+    /**
+     * Returns home community (OID, which the file system provider has requested from DIMDI)
+     *
+     * @return home community ID
+     */
+    @Override
+    public String getHomeCommunityId() {
+        final LocatorState current = state.get();
+        return current.getEndpointTable().getHomeCommunityId(validAt(current));
+    }
+
+    /**
+     * Returns the entries of the given FQDN served at this moment together with the status its lookup ended with
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param lookupStatus
+     *            status the lookup ended with
+     * @return immutable result, without entries if the served table belongs to another FQDN
+     */
+    LookupResult getLookupResult(final String fqdn, final LookupStatus lookupStatus) {
+        return getLookupResult(fqdn, lookupStatus, state.get());
+    }
+
+    private LookupResult getLookupResult(final String fqdn, final LookupStatus lookupStatus, final LocatorState current) {
+        final EndpointTable endpointTable = current.getEndpointTable().isFor(fqdn) ? current.getEndpointTable() : EndpointTable.EMPTY;
+        final long validAt = validAt(current);
+        return new LookupResult(fqdn, lookupStatus, endpointTable.getEndpointURLs(validAt), endpointTable.getHomeCommunityId(validAt));
+    }
+
+    /**
+     * Removes the given callback from the running lookup, e.g. after its caller stopped waiting for the result
+     *
+     * @param callback
+     *            callback passed to {@link #lookup(String, Executor, Consumer)}
+     */
+    void detach(final Consumer<LookupStatus> callback) {
+        final InFlightLookup running = state.get().getInFlightLookup();
+        if (running != null) {
+            running.detach(callback);
+        }
+    }
+
+    public boolean isRunning() {
+        return state.get().isRunning();
+    }
+
+    protected void setRunning(final boolean running) {
+        if (running) {
+            joinOrStartLookup(state.get().getFqdn(), null, false);
+        } else {
+            state.updateAndGet(LocatorState::withoutInFlightLookup);
+        }
+    }
+
+    void setLookupStatus(final LookupStatus lookupStatus) {
+        state.updateAndGet(current -> current.withLookupStatus(lookupStatus));
+    }
+
+    /**
+     * Returns the state without the finished lookup, caching its failure if a negative cache policy is set
+     */
+    private LocatorState finish(final LocatorState current) {
+        final LocatorState finished = current.withoutInFlightLookup();
+        final NegativeCachePolicy policy = negativeCachePolicy;
+        if (policy == null || finished.getLookupStatus() != LookupStatus.ERROR) {
+            return finished;
+        }
+        return finished.withNegativeUntil(clock.millis() + policy.getErrorMillis());
+    }
+
+    protected void answerCallback(final Consumer<LookupStatus> callback) {
+        if (callback instanceof InFlightLookup) {
+            final InFlightLookup lookup = (InFlightLookup) callback;
+            if (scheduleRetry(lookup)) {
+                return;
+            }
+            final LocatorState previous = state.getAndUpdate(current -> current.getInFlightLookup() == lookup ? finish(current) : current);
+            final boolean ended = previous.getInFlightLookup() == lookup;
+            final LocatorState finished = ended ? finish(previous) : previous;
+            final LookupStatus lookupStatus = finished.isRunning() ? LookupStatus.ERROR : finished.getLookupStatus();
+            if (ended) {
+                notifyLookupCompleted(lookup, lookupStatus, null);
+                if (lookupStatus != LookupStatus.SUCCESS) {
+                    scheduleRefreshAfterFailure();
+                }
+            }
+            // callbacks of a superseded lookup were already handed over
+            lookup.complete(lookupStatus, () -> getLookupResult(lookup.getFqdn(), lookupStatus, finished));
+        } else {
+            setRunning(false);
+            callback.accept(getLookupStatus());
+        }
+    }
+}
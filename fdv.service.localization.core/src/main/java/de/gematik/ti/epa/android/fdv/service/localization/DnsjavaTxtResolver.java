@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.ExtendedResolver;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.SimpleResolver;
+import org.xbill.DNS.Type;
+
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=DnsjavaTxtResolver]
+ */
+public final class DnsjavaTxtResolver implements TxtResolver {
+
+    private final Resolver resolver;
+
+    /**
+     * Constructor for a resolver querying the name servers configured for the JVM, e.g. in /etc/resolv.conf
+     */
+    public DnsjavaTxtResolver() {
+        try {
+            resolver = new ExtendedResolver();
+        } catch (final UnknownHostException e) {
+            throw new ServiceLocatorException("Invalid name server configuration: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Constructor for a resolver querying the given name servers, one after the other if a server does not answer
+     *
+     * @param servers
+     *            addresses of the name servers
+     */
+    public DnsjavaTxtResolver(final InetSocketAddress... servers) {
+        final Resolver[] resolvers = new Resolver[servers.length];
+        try {
+            for (int i = 0; i < servers.length; i++) {
+                final SimpleResolver simpleResolver = new SimpleResolver(servers[i].getAddress().getHostAddress());
+                simpleResolver.setPort(servers[i].getPort());
+                resolvers[i] = simpleResolver;
+            }
+            resolver = new ExtendedResolver(resolvers);
+        } catch (final UnknownHostException e) {
+            throw new ServiceLocatorException("Invalid name server address: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Resolves on the given executor, a name that does not exist is answered without TXT records. A cancelled query is not sent if it has not
+     * started yet, so it does not hold a thread of the executor. A query already waiting for its answer keeps its thread until dnsjava times
+     * out, as dnsjava ignores interrupts, but its outcome is dropped.
+     */
+    @Override
+    public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        executor.execute(() -> {
+            if (cancelled.get()) {
+                return;
+            }
+            final Message response;
+            try {
+                final Name name = Name.fromString(fqdn, Name.root);
+                response = resolver.send(Message.newQuery(Record.newRecord(name, Type.TXT, DClass.IN)));
+            } catch (final IOException e) {
+                if (!cancelled.get()) {
+                    callback.onError(e);
+                }
+                return;
+            }
+            if (cancelled.get()) {
+                return;
+            }
+            final int rcode = response.getRcode();
+            if (rcode != Rcode.NOERROR && rcode != Rcode.NXDOMAIN) {
+                callback.onError(new IOException("Error response " + Rcode.string(rcode) + " for " + fqdn));
+                return;
+            }
+            callback.onAnswer(TxtAnswer.of(response.getSectionArray(Section.ANSWER), response.getSectionArray(Section.AUTHORITY)));
+        });
+        return () -> cancelled.set(true);
+    }
+}
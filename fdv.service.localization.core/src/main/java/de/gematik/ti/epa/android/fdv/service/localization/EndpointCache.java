@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file holding the resolved gateway module paths of all FQDNs with their absolute expiry times, so a new process can serve them
+ * before its first lookup ended. As the monotonic clock starts anew with every boot, the file holds wall clock times, which are converted
+ * from and to the clock when writing and reading. The file is replaced atomically by writing a temporary file and renaming it; a torn or corrupt file is
+ * detected by its checksum and ignored.
+ */
+final class EndpointCache {
+
+    private static final int MAGIC = 0x45534C43;
+    private static final int VERSION = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File file;
+    private final MonotonicClock clock;
+    private final Map<String, EndpointTable> endpointTables = new ConcurrentHashMap<>();
+    private final AtomicBoolean writePending = new AtomicBoolean();
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            cache file, its directory must exist
+     */
+    EndpointCache(final File file) {
+        this(file, PlatformClock.INSTANCE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            cache file, its directory must exist
+     * @param clock
+     *            clock the expiry times of the tables are measured in
+     */
+    EndpointCache(final File file, final MonotonicClock clock) {
+        this.file = file;
+        this.clock = clock;
+    }
+
+    /**
+     * Reads the cache file and keeps the entries still valid at the given time
+     *
+     * @param now
+     *            current time in milliseconds since the epoch
+     * @return restored tables by lower case FQDN, empty if there is no readable cache file
+     */
+    Map<String, EndpointTable> load(final long now) {
+        endpointTables.clear();
+        if (!file.isFile()) {
+            return new HashMap<>();
+        }
+        try {
+            endpointTables.putAll(decode(readFile(), now, clock.millis() - now));
+        } catch (final IOException | RuntimeException e) {
+            // a corrupt cache only costs a lookup, it is replaced by the next write
+            endpointTables.clear();
+            file.delete();
+        }
+        return new HashMap<>(endpointTables);
+    }
+
+    /**
+     * Replaces the cached table of the given FQDN and writes the cache file on the given executor. Updates arriving before the pending
+     * write started are written together.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param endpointTable
+     *            new table, {@link EndpointTable#EMPTY} to remove the FQDN
+     * @param executor
+     *            executor to write on
+     */
+    void update(final String fqdn, final EndpointTable endpointTable, final Executor executor) {
+        if (endpointTable.getGatewayModulePaths().isEmpty()) {
+            endpointTables.remove(toKey(fqdn));
+        } else {
+            endpointTables.put(toKey(fqdn), endpointTable);
+        }
+        if (writePending.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::writePending);
+            } catch (final RejectedExecutionException e) {
+                writePending();
+            }
+        }
+    }
+
+    private void writePending() {
+        writePending.set(false);
+        try {
+            write();
+        } catch (final IOException e) {
+            // the previous file stays intact, the next update tries again
+        }
+    }
+
+    /**
+     * Writes all cached tables to a temporary file and renames it to the cache file
+     *
+     * @throws IOException
+     *             if the file could not be written
+     */
+    synchronized void write() throws IOException {
+        final byte[] content = encode(endpointTables, System.currentTimeMillis() - clock.millis());
+        final File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(content);
+            out.getFD().sync();
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not rename " + tempFile + " to " + file);
+        }
+    }
+
+    private byte[] readFile() throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream((int) file.length());
+        try (InputStream in = new FileInputStream(file)) {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+        }
+        return content.toByteArray();
+    }
+
+    /**
+     * Encodes the given tables with their expiry times converted to wall clock times
+     *
+     * @param endpointTables
+     *            tables by lower case FQDN
+     * @param wallClockOffset
+     *            difference in milliseconds between the wall clock and the clock of the tables
+     * @return content of the cache file
+     * @throws IOException
+     *             if the tables could not be encoded
+     */
+    static byte[] encode(final Map<String, EndpointTable> endpointTables, final long wallClockOffset) throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(content);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(endpointTables.size());
+        for (final EndpointTable endpointTable : endpointTables.values()) {
+            out.writeUTF(endpointTable.getFqdn());
+            final Map<String, GatewayModulePathType> gatewayModulePaths = endpointTable.getGatewayModulePaths();
+            out.writeInt(gatewayModulePaths.size());
+            for (final Map.Entry<String, GatewayModulePathType> entry : gatewayModulePaths.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue().getPath());
+                out.writeLong(entry.getValue().getExpiresAt() + wallClockOffset);
+            }
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(content.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return content.toByteArray();
+    }
+
+    /**
+     * Decodes the tables of a cache file with their expiry times converted to times of the clock
+     *
+     * @param content
+     *            content of the cache file
+     * @param now
+     *            current time in milliseconds since the epoch, entries expired before are dropped
+     * @param clockOffset
+     *            difference in milliseconds between the clock of the tables and the wall clock
+     * @return tables by lower case FQDN
+     * @throws IOException
+     *             if the content is corrupt
+     */
+    static Map<String, EndpointTable> decode(final byte[] content, final long now, final long clockOffset) throws IOException {
+        if (content.length < Long.BYTES) {
+            throw new IOException("Truncated cache file");
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - Long.BYTES);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        in.skipBytes(content.length - Long.BYTES);
+        if (in.readLong() != crc.getValue()) {
+            throw new IOException("Checksum mismatch in cache file");
+        }
+        in.reset();
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unknown cache file format");
+        }
+        final Map<String, EndpointTable> endpointTables = new HashMap<>();
+        final int fqdnCount = in.readInt();
+        for (int i = 0; i < fqdnCount; i++) {
+            final String fqdn = in.readUTF();
+            final Map<String, GatewayModulePathType> gatewayModulePaths = new HashMap<>();
+            final int entryCount = in.readInt();
+            for (int j = 0; j < entryCount; j++) {
+                final String name = in.readUTF();
+                final String path = in.readUTF();
+                final long validUntil = in.readLong();
+                if (validUntil > now) {
+                    gatewayModulePaths.put(name, new GatewayModulePathType(path, 0, validUntil + clockOffset));
+                }
+            }
+            if (!gatewayModulePaths.isEmpty()) {
+                endpointTables.put(toKey(fqdn), EndpointTable.build(fqdn, gatewayModulePaths));
+            }
+        }
+        return endpointTables;
+    }
+
+    private static String toKey(final String fqdn) {
+        return fqdn.toLowerCase(Locale.ROOT);
+    }
+}
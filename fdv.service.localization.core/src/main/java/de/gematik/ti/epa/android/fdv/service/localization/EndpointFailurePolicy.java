@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=EndpointFailurePolicy]
+ */
+public final class EndpointFailurePolicy {
+
+    private final int failureThreshold;
+    private final long minResolveIntervalMillis;
+
+    /**
+     * Constructor
+     *
+     * @param failureThreshold
+     *            number of failures of an endpoint in a row, without success in between, which let the FQDN be resolved again
+     * @param minResolveIntervalMillis
+     *            minimum time in milliseconds between two lookups started by failures, so a burst of failures sends one query
+     */
+    public EndpointFailurePolicy(final int failureThreshold, final long minResolveIntervalMillis) {
+        if (failureThreshold <= 0 || minResolveIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid endpoint failure policy: failureThreshold=" + failureThreshold + ", minResolveIntervalMillis=" + minResolveIntervalMillis);
+        }
+        this.failureThreshold = failureThreshold;
+        this.minResolveIntervalMillis = minResolveIntervalMillis;
+    }
+
+    /**
+     * Getter for the number of failures in a row which let the FQDN be resolved again
+     *
+     * @return number of failures
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Getter for the minimum time between two lookups started by failures
+     *
+     * @return time in milliseconds
+     */
+    public long getMinResolveIntervalMillis() {
+        return minResolveIntervalMillis;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * Immutable table of the final endpoint URLs of all service interfaces, built once per successful lookup. Reading from it does not
+ * allocate. All times are milliseconds of the {@link MonotonicClock} of the locator; before the first entry expires, a read takes a single
+ * comparison against the table-wide earliest expiry.
+ */
+final class EndpointTable {
+
+    static final EndpointTable EMPTY = new EndpointTable(null, Collections.emptyMap(), new URL[ServiceInterfaceName.values().length],
+            new long[ServiceInterfaceName.values().length], null, Long.MIN_VALUE);
+
+    private static final String SCHEME = "https://";
+    private static final int PORT = 443;
+    private static final String HCID = "hcid";
+
+    private final String fqdn;
+    private final Map<String, GatewayModulePathType> gatewayModulePaths;
+    private final URL[] urls;
+    private final long[] validUntil;
+    private final String homeCommunityId;
+    private final long homeCommunityIdValidUntil;
+    private final long earliestValidUntil;
+
+    private EndpointTable(final String fqdn, final Map<String, GatewayModulePathType> gatewayModulePaths, final URL[] urls, final long[] validUntil,
+            final String homeCommunityId, final long homeCommunityIdValidUntil) {
+        this.fqdn = fqdn;
+        this.gatewayModulePaths = gatewayModulePaths;
+        this.urls = urls;
+        this.validUntil = validUntil;
+        this.homeCommunityId = homeCommunityId;
+        this.homeCommunityIdValidUntil = homeCommunityIdValidUntil;
+        long earliest = homeCommunityId != null ? homeCommunityIdValidUntil : Long.MAX_VALUE;
+        for (int i = 0; i < urls.length; i++) {
+            if (urls[i] != null) {
+                earliest = Math.min(earliest, validUntil[i]);
+            }
+        }
+        earliestValidUntil = earliest;
+    }
+
+    /**
+     * Builds the endpoint URLs of all service interfaces whose gateway module is part of the resolved TXT record values
+     *
+     * @param fqdn
+     *            fully qualified domain name the values were resolved for
+     * @param dnsTxtRecordValues
+     *            gateway module paths by module name
+     * @return new table
+     */
+    static EndpointTable build(final String fqdn, final Map<String, GatewayModulePathType> dnsTxtRecordValues) {
+        final ServiceInterfaceName[] serviceInterfaceNames = ServiceInterfaceName.values();
+        final URL[] urls = new URL[serviceInterfaceNames.length];
+        final long[] validUntil = new long[serviceInterfaceNames.length];
+        final String baseUrl = SCHEME + fqdn + ":" + PORT;
+        for (final ServiceInterfaceName serviceInterfaceName : serviceInterfaceNames) {
+            final int index = serviceInterfaceName.ordinal();
+            final GatewayModulePathType gatewayModulePathType = dnsTxtRecordValues.get(serviceInterfaceName.getModuleName());
+            if (gatewayModulePathType == null) {
+                validUntil[index] = Long.MIN_VALUE;
+            } else {
+                urls[index] = toUrl(baseUrl, gatewayModulePathType.getPath(), serviceInterfaceName.getServiceLocatorName());
+                validUntil[index] = gatewayModulePathType.getExpiresAt();
+            }
+        }
+        final GatewayModulePathType hcid = dnsTxtRecordValues.get(HCID);
+        return new EndpointTable(fqdn, Collections.unmodifiableMap(new HashMap<>(dnsTxtRecordValues)), urls, validUntil, hcid != null ? hcid.getPath() : null, hcid != null ? hcid.getExpiresAt() : Long.MIN_VALUE);
+    }
+
+    private static URL toUrl(final String baseUrl, final String path, final String serviceLocatorName) {
+        try {
+            if (serviceLocatorName.length() > 0) {
+                return new URL(baseUrl + path + "/" + serviceLocatorName);
+            } else {
+                return new URL(baseUrl + path);
+            }
+        } catch (final MalformedURLException e) {
+            throw new ServiceLocatorException("Invalid gateway module path " + path + " in DNS Response found.", e);
+        }
+    }
+
+    /**
+     * Returns the endpoint URL of the given interface if it is still valid at the given time
+     *
+     * @param serviceInterfaceName
+     *            name of the gateway interface
+     * @param now
+     *            current time in milliseconds of the clock
+     * @return URL of given interface name or null if unknown or expired
+     */
+    URL getEndpointURL(final ServiceInterfaceName serviceInterfaceName, final long now) {
+        final int index = serviceInterfaceName.ordinal();
+        if (now <= earliestValidUntil) {
+            return urls[index];
+        }
+        return validUntil[index] >= now ? urls[index] : null;
+    }
+
+    /**
+     * Returns the endpoint URLs of all interfaces which are still valid at the given time
+     *
+     * @param now
+     *            current time in milliseconds of the clock
+     * @return new map of URLs by interface name
+     */
+    EnumMap<ServiceInterfaceName, URL> getEndpointURLs(final long now) {
+        final EnumMap<ServiceInterfaceName, URL> endpointURLs = new EnumMap<>(ServiceInterfaceName.class);
+        for (final ServiceInterfaceName serviceInterfaceName : ServiceInterfaceName.values()) {
+            final URL url = getEndpointURL(serviceInterfaceName, now);
+            if (url != null) {
+                endpointURLs.put(serviceInterfaceName, url);
+            }
+        }
+        return endpointURLs;
+    }
+
+    /**
+     * Returns the FQDN this table was resolved for
+     *
+     * @return fully qualified domain name or null for the empty table
+     */
+    String getFqdn() {
+        return fqdn;
+    }
+
+    /**
+     * Returns the gateway module paths this table was built from
+     *
+     * @return unmodifiable map of gateway module paths by module name
+     */
+    Map<String, GatewayModulePathType> getGatewayModulePaths() {
+        return gatewayModulePaths;
+    }
+
+    /**
+     * Returns whether this table was resolved for the given FQDN
+     *
+     * @param otherFqdn
+     *            fully qualified domain name
+     * @return true if the FQDNs are equal ignoring case
+     */
+    boolean isFor(final String otherFqdn) {
+        return fqdn != null && fqdn.equalsIgnoreCase(otherFqdn);
+    }
+
+    /**
+     * Returns the time the first entry of this table expires, {@link Long#MAX_VALUE} for an empty table
+     *
+     * @return time in milliseconds of the clock
+     */
+    long getEarliestValidUntil() {
+        return earliestValidUntil;
+    }
+
+    /**
+     * Returns the home community ID if it is still valid at the given time
+     *
+     * @param now
+     *            current time in milliseconds of the clock
+     * @return home community ID or null if unknown or expired
+     */
+    String getHomeCommunityId(final long now) {
+        return now <= earliestValidUntil || homeCommunityIdValidUntil >= now ? homeCommunityId : null;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Lookup callback of a caller that is delivered on the executor given with the lookup instead of the resolver thread. All callbacks of one
+ * lookup on the same executor are delivered together in one task.
+ */
+final class ExecutorCallback implements Consumer<LookupStatus> {
+
+    private final Executor executor;
+    private final Consumer<LookupStatus> callback;
+
+    /**
+     * Constructor
+     *
+     * @param executor
+     *            executor to deliver the result on
+     * @param callback
+     *            callback of the caller, a {@link TimeoutCallback} is told about the timeout as well
+     */
+    ExecutorCallback(final Executor executor, final Consumer<LookupStatus> callback) {
+        if (executor == null || callback == null) {
+            throw new IllegalArgumentException("Executor and callback are required");
+        }
+        this.executor = executor;
+        this.callback = callback;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    Consumer<LookupStatus> getCallback() {
+        return callback;
+    }
+
+    /**
+     * Delivers the status on the executor, use {@link InFlightLookup#deliver(java.util.List, LookupStatus)} to deliver several callbacks
+     * in one task
+     */
+    @Override
+    public void accept(final LookupStatus lookupStatus) {
+        InFlightLookup.deliver(Collections.singletonList(this), lookupStatus);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=FlightRecorder]
+ */
+public final class FlightRecorder {
+
+    /**
+     * Number of events kept by the recorder of a registry
+     */
+    public static final int DEFAULT_CAPACITY = 128;
+
+    private final AtomicReferenceArray<Event> events;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param capacity
+     *            number of events to keep, rounded up to a power of two. Older events are overwritten.
+     */
+    public FlightRecorder(final int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid flight recorder capacity: " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        events = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the number of events kept
+     *
+     * @return capacity, a power of two
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the number of events recorded since the recorder was created, including the overwritten ones
+     *
+     * @return number of events
+     */
+    public long getRecordedCount() {
+        return next.get();
+    }
+
+    void recordLookupStarted(final String fqdn, final String backend) {
+        record(new Event(Type.LOOKUP_STARTED, fqdn, backend, null, 0, null, null));
+    }
+
+    void recordNegativeCacheHit(final String fqdn, final LookupStatus lookupStatus) {
+        record(new Event(Type.NEGATIVE_CACHE_HIT, fqdn, null, lookupStatus, 0, null, null));
+    }
+
+    /**
+     * Records the parsed answer: number of TXT records, their size in bytes and TTLs and the keys found in them
+     */
+    void recordAnswer(final String fqdn, final TxtAnswer txtAnswer, final Map<String, GatewayModulePathType> gatewayModulePaths) {
+        final long[] ttls = new long[txtAnswer.size()];
+        for (int i = 0; i < ttls.length; i++) {
+            ttls[i] = txtAnswer.getTtl(i);
+        }
+        record(new Event(Type.ANSWER, fqdn, null, null, txtAnswer.getRdataLength(), ttls, gatewayModulePaths.keySet().toArray()));
+    }
+
+    void recordError(final String fqdn, final Throwable error) {
+        record(new Event(Type.ERROR, fqdn, null, null, 0, null, error));
+    }
+
+    void recordEndpointFailures(final String fqdn, final ServiceInterfaceName serviceInterfaceName, final int failures) {
+        record(new Event(Type.ENDPOINT_FAILURES, fqdn, null, null, failures, null, serviceInterfaceName));
+    }
+
+    void recordRetry(final String fqdn, final int retry, final long backoffMillis) {
+        record(new Event(Type.RETRY, fqdn, null, null, backoffMillis, new long[] { retry }, null));
+    }
+
+    /**
+     * Records the end of a lookup
+     *
+     * @param reason
+     *            why the lookup ended early, e.g. "timeout", null if the backend answered
+     */
+    void recordLookupEnded(final String fqdn, final String backend, final LookupStatus lookupStatus, final long durationNanos, final String reason) {
+        record(new Event(Type.LOOKUP_ENDED, fqdn, backend, lookupStatus, durationNanos, null, reason));
+    }
+
+    private void record(final Event event) {
+        final long sequence = next.getAndIncrement();
+        event.sequence = sequence;
+        events.lazySet((int) sequence & mask, event);
+    }
+
+    /**
+     * Returns the kept events as text, the oldest first, one event per line of space-separated key=value pairs
+     *
+     * @return dump of the events
+     */
+    public String dump() {
+        final StringBuilder out = new StringBuilder();
+        try {
+            dump(out);
+        } catch (final IOException e) {
+            // a StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the kept events as text, the oldest first, one event per line of space-separated key=value pairs. Events recorded meanwhile
+     * may be missing.
+     *
+     * @param out
+     *            destination of the dump, e.g. a Writer of a bug report
+     * @throws IOException
+     *             if writing fails
+     */
+    public void dump(final Appendable out) throws IOException {
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final StringBuilder line = new StringBuilder();
+        final long end = next.get();
+        for (long sequence = Math.max(0, end - getCapacity()); sequence < end; sequence++) {
+            final Event event = events.get((int) sequence & mask);
+            // not written yet or overwritten by a newer one
+            if (event != null && event.sequence == sequence) {
+                line.setLength(0);
+                event.appendTo(line, format);
+                out.append(line).append('\n');
+            }
+        }
+    }
+
+    private enum Type {
+        LOOKUP_STARTED,
+        NEGATIVE_CACHE_HIT,
+        ANSWER,
+        ERROR,
+        RETRY,
+        ENDPOINT_FAILURES,
+        LOOKUP_ENDED
+    }
+
+    /**
+     * One recorded event, formatted only when dumped
+     */
+    private static final class Event {
+
+        private final long wallMillis = System.currentTimeMillis();
+        private final Type type;
+        private final String fqdn;
+        private final String backend;
+        private final LookupStatus lookupStatus;
+        private final long value;
+        private final long[] values;
+        private final Object detail;
+        private volatile long sequence = -1;
+
+        Event(final Type type, final String fqdn, final String backend, final LookupStatus lookupStatus, final long value, final long[] values,
+                final Object detail) {
+            this.type = type;
+            this.fqdn = fqdn;
+            this.backend = backend;
+            this.lookupStatus = lookupStatus;
+            this.value = value;
+            this.values = values;
+            this.detail = detail;
+        }
+
+        void appendTo(final StringBuilder line, final SimpleDateFormat format) {
+            line.append(format.format(new Date(wallMillis))).append(" #").append(sequence).append(' ').append(type).append(" fqdn=").append(fqdn);
+            if (backend != null) {
+                line.append(" backend=").append(backend);
+            }
+            switch (type) {
+                case ANSWER:
+                    line.append(" records=").append(values.length).append(" bytes=").append(value).append(" ttls=");
+                    appendList(line, values);
+                    line.append(" keys=");
+                    appendList(line, (Object[]) detail);
+                    break;
+                case ERROR:
+                    line.append(" exception=").append(detail);
+                    for (Throwable cause = ((Throwable) detail).getCause(); cause != null; cause = cause.getCause()) {
+                        line.append(" cause=").append(cause);
+                    }
+                    break;
+                case ENDPOINT_FAILURES:
+                    line.append(" interface=").append(detail).append(" failures=").append(value);
+                    break;
+                case RETRY:
+                    line.append(" retry=").append(values[0]).append(" backoffMillis=").append(value);
+                    break;
+                case LOOKUP_ENDED:
+                    line.append(" status=").append(lookupStatus).append(" durationMicros=").append(TimeUnit.NANOSECONDS.toMicros(value));
+                    if (detail != null) {
+                        line.append(" reason=").append(detail);
+                    }
+                    break;
+                case NEGATIVE_CACHE_HIT:
+                    line.append(" status=").append(lookupStatus);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static void appendList(final StringBuilder line, final long[] list) {
+            line.append('[');
+            for (int i = 0; i < list.length; i++) {
+                line.append(i > 0 ? "," : "").append(list[i]);
+            }
+            line.append(']');
+        }
+
+        private static void appendList(final StringBuilder line, final Object[] list) {
+            line.append('[');
+            for (int i = 0; i < list.length; i++) {
+                line.append(i > 0 ? "," : "").append(list[i]);
+            }
+            line.append(']');
+        }
+    }
+}
@@ -17,13 +17,14 @@
 package de.gematik.ti.epa.android.fdv.service.localization;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * include::{userguide}/ESL4A_Overview.adoc[tag=GatewayModulePathType]
  */
 public class GatewayModulePathType {
     private final String path;
-    private final Date validUntil;
+    private final long expiresAt;
 
     /**
      * Constructor
@@ -31,20 +32,45 @@ public class GatewayModulePathType {
      * @param path
      *            path to the ePA file system component
      * @param ttl
-     *            time to live
+     *            time to live in seconds, as in the DNS record
      */
     public GatewayModulePathType(final String path, final long ttl) {
+        this(path, ttl, PlatformClock.INSTANCE.millis());
+    }
+
+    /**
+     * Constructor for an entry resolved at the given time of a {@link MonotonicClock}
+     *
+     * @param path
+     *            path to the ePA file system component
+     * @param ttl
+     *            time to live in seconds
+     * @param now
+     *            time in milliseconds of the clock the TTL starts at, the expiry time itself to restore an entry with a TTL of 0
+     */
+    GatewayModulePathType(final String path, final long ttl, final long now) {
         this.path = path;
-        validUntil = new Date(System.currentTimeMillis() + ttl);
+        expiresAt = now + TimeUnit.SECONDS.toMillis(ttl);
     }
 
     /**
-     * Getter for date and time until the gateway path is valid
+     * Getter for date and time until the gateway path is valid, derived from the current wall clock
      * 
      * @return date and time until the gateway path is valid
+     * @deprecated the wall clock may be changed while the entry is valid, the service locators use {@link #getExpiresAt()} instead
      */
+    @Deprecated
     public Date getValidUntil() {
-        return validUntil;
+        return new Date(System.currentTimeMillis() + expiresAt - PlatformClock.INSTANCE.millis());
+    }
+
+    /**
+     * Getter for the time until the gateway path is valid
+     *
+     * @return time in milliseconds of the {@link MonotonicClock} the entry was resolved with
+     */
+    long getExpiresAt() {
+        return expiresAt;
     }
 
     /**
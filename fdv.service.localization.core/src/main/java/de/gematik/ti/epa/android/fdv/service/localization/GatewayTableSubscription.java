@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=GatewayTableSubscription]
+ */
+public final class GatewayTableSubscription {
+
+    private final Executor executor;
+    private final Consumer<GatewayTableUpdate> listener;
+    private final Supplier<EndpointTable> servedTable;
+    private final Consumer<GatewayTableSubscription> unsubscribe;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean cancelled;
+    // only read and written by the scheduled task, which the flag scheduled hands over between threads
+    private EndpointTable delivered = EndpointTable.EMPTY;
+
+    /**
+     * Constructor
+     *
+     * @param executor
+     *            executor to call the listener on
+     * @param listener
+     *            listener of the updates
+     * @param servedTable
+     *            table served by the locator at the moment
+     * @param unsubscribe
+     *            removes this subscription from the locator
+     */
+    GatewayTableSubscription(final Executor executor, final Consumer<GatewayTableUpdate> listener, final Supplier<EndpointTable> servedTable,
+            final Consumer<GatewayTableSubscription> unsubscribe) {
+        if (executor == null || listener == null) {
+            throw new IllegalArgumentException("Executor and listener are required");
+        }
+        this.executor = executor;
+        this.listener = listener;
+        this.servedTable = servedTable;
+        this.unsubscribe = unsubscribe;
+    }
+
+    /**
+     * Tells this subscription that the served table was replaced. Never blocks: while a task of this subscription is queued or running, no
+     * further task is queued, the next task compares the table served then with the one delivered last.
+     */
+    void tableReplaced() {
+        if (cancelled) {
+            return;
+        }
+        pending.set(true);
+        if (scheduled.compareAndSet(false, true)) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::deliver);
+        } catch (final RejectedExecutionException e) {
+            // e.g. the executor of the subscriber was shut down, the next replaced table tries again
+            scheduled.set(false);
+        }
+    }
+
+    private void deliver() {
+        try {
+            if (pending.getAndSet(false) && !cancelled) {
+                final EndpointTable current = servedTable.get();
+                final GatewayTableUpdate update = GatewayTableUpdate.diff(delivered, current);
+                if (update != null) {
+                    delivered = current;
+                    listener.accept(update);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // the table was replaced again while the listener ran
+            if (pending.get() && !cancelled && scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Ends this subscription, the listener is not called any more once a running call returned
+     */
+    public void cancel() {
+        cancelled = true;
+        unsubscribe.accept(this);
+    }
+
+    /**
+     * Returns whether this subscription was cancelled
+     *
+     * @return true after {@link #cancel()}
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
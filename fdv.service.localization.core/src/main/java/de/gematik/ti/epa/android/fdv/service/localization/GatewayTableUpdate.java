@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=GatewayTableUpdate]
+ */
+public final class GatewayTableUpdate {
+
+    private final String fqdn;
+    private final Map<String, String> gatewayModulePaths;
+    private final Map<ServiceInterfaceName, URL> endpointURLs;
+    private final String homeCommunityId;
+    private final Set<String> addedKeys;
+    private final Set<String> removedKeys;
+    private final Set<String> changedKeys;
+
+    private GatewayTableUpdate(final String fqdn, final EndpointTable endpointTable, final Map<String, String> gatewayModulePaths,
+            final Set<String> addedKeys, final Set<String> removedKeys, final Set<String> changedKeys) {
+        this.fqdn = fqdn;
+        this.gatewayModulePaths = Collections.unmodifiableMap(gatewayModulePaths);
+        // valid at the earliest time, so the snapshot holds every entry of the table
+        endpointURLs = Collections.unmodifiableMap(endpointTable.getEndpointURLs(Long.MIN_VALUE));
+        homeCommunityId = endpointTable.getHomeCommunityId(Long.MIN_VALUE);
+        this.addedKeys = Collections.unmodifiableSet(addedKeys);
+        this.removedKeys = Collections.unmodifiableSet(removedKeys);
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+    }
+
+    /**
+     * Compares the gateway module paths of two tables, their TTLs are ignored
+     *
+     * @param previous
+     *            table the subscriber got last, {@link EndpointTable#EMPTY} at first
+     * @param current
+     *            table served now
+     * @return update from the previous to the current table, null if the paths and the FQDN are unchanged
+     */
+    static GatewayTableUpdate diff(final EndpointTable previous, final EndpointTable current) {
+        final Map<String, String> previousPaths = toPaths(previous);
+        final Map<String, String> currentPaths = toPaths(current);
+        // the FQDN is part of every endpoint URL
+        final boolean otherFqdn = previous.getFqdn() != null && current.getFqdn() != null && !current.isFor(previous.getFqdn());
+        if (!otherFqdn && previousPaths.equals(currentPaths)) {
+            return null;
+        }
+        final Set<String> added = new TreeSet<>();
+        final Set<String> changed = new TreeSet<>();
+        for (final Map.Entry<String, String> entry : currentPaths.entrySet()) {
+            if (!previousPaths.containsKey(entry.getKey())) {
+                added.add(entry.getKey());
+            } else if (otherFqdn || !Objects.equals(previousPaths.get(entry.getKey()), entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        final Set<String> removed = new TreeSet<>(previousPaths.keySet());
+        removed.removeAll(currentPaths.keySet());
+        return new GatewayTableUpdate(current.getFqdn() != null ? current.getFqdn() : previous.getFqdn(), current, currentPaths, added, removed,
+                changed);
+    }
+
+    private static Map<String, String> toPaths(final EndpointTable endpointTable) {
+        final Map<String, String> paths = new HashMap<>();
+        for (final Map.Entry<String, GatewayModulePathType> entry : endpointTable.getGatewayModulePaths().entrySet()) {
+            paths.put(entry.getKey(), entry.getValue().getPath());
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the FQDN the table was resolved for
+     *
+     * @return fully qualified domain name
+     */
+    public String getFqdn() {
+        return fqdn;
+    }
+
+    /**
+     * Returns the gateway module paths of the new table, empty after a lookup ended with
+     * {@link de.gematik.ti.epa.fdv.service.localization.api.LookupStatus#MISSING_TXT_RECORD}
+     *
+     * @return unmodifiable map of paths by key of the TXT record, e.g. docv or hcid
+     */
+    public Map<String, String> getGatewayModulePaths() {
+        return gatewayModulePaths;
+    }
+
+    /**
+     * Returns the endpoint URLs of all interfaces of the new table, regardless of their TTL
+     *
+     * @return unmodifiable map of URLs by interface name
+     */
+    public Map<ServiceInterfaceName, URL> getEndpointURLs() {
+        return endpointURLs;
+    }
+
+    /**
+     * Returns the home community ID of the new table
+     *
+     * @return home community ID or null if unknown
+     */
+    public String getHomeCommunityId() {
+        return homeCommunityId;
+    }
+
+    /**
+     * Returns the keys of the TXT record which the previous table did not have
+     *
+     * @return unmodifiable sorted set of keys
+     */
+    public Set<String> getAddedKeys() {
+        return addedKeys;
+    }
+
+    /**
+     * Returns the keys of the TXT record which the new table does not have any more
+     *
+     * @return unmodifiable sorted set of keys
+     */
+    public Set<String> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    /**
+     * Returns the keys of the TXT record whose path changed, all keys of both tables if the FQDN changed
+     *
+     * @return unmodifiable sorted set of keys
+     */
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "GatewayTableUpdate{fqdn=" + fqdn + ", added=" + addedKeys + ", removed=" + removedKeys + ", changed=" + changedKeys + "}";
+    }
+}
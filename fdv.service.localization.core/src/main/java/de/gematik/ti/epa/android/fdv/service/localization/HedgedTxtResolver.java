@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=HedgedTxtResolver]
+ */
+public final class HedgedTxtResolver implements TxtResolver {
+
+    /**
+     * Weight of a new latency sample in the moving average of an upstream
+     */
+    static final double LATENCY_WEIGHT = 0.2;
+    /**
+     * Latency sample of an upstream that failed, the default timeout of the resolvers
+     */
+    static final long FAILURE_LATENCY_MILLIS = NioTxtResolver.DEFAULT_TIMEOUT_MILLIS;
+
+    private final Upstream[] upstreams;
+    private final long hedgeDelayMillis;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor
+     *
+     * @param hedgeDelayMillis
+     *            time to wait for the answer of one resolver before the next one is queried as well, 0 to query all resolvers at once
+     * @param resolvers
+     *            resolvers to race, e.g. of different backends or querying different name servers. They are queried in the order of their average
+     *            latency, resolvers without latency yet in the given order. They should validate their answers in the same way, e.g. all with
+     *            DNSSEC, as the first answer wins regardless of its resolver.
+     */
+    public HedgedTxtResolver(final long hedgeDelayMillis, final TxtResolver... resolvers) {
+        this(hedgeDelayMillis, ResolverExecutor.getScheduler(), resolvers);
+    }
+
+    HedgedTxtResolver(final long hedgeDelayMillis, final ScheduledExecutorService scheduler, final TxtResolver... resolvers) {
+        if (resolvers.length == 0) {
+            throw new IllegalArgumentException("At least one resolver is required");
+        }
+        if (hedgeDelayMillis < 0) {
+            throw new IllegalArgumentException("Hedge delay must not be negative");
+        }
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.scheduler = scheduler;
+        upstreams = new Upstream[resolvers.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            upstreams[i] = new Upstream(resolvers[i], i);
+        }
+    }
+
+    /**
+     * Queries the resolver with the lowest average latency first and the next one after the hedge delay, or right away if a resolver fails.
+     * The first answer whose TXT records can be parsed ends the race, the queries of the other resolvers are cancelled.
+     */
+    @Override
+    public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+        final Race race = new Race(fqdn, executor, callback, orderByLatency());
+        race.startNext();
+        return race;
+    }
+
+    /**
+     * Prepares all resolvers of the race
+     */
+    @Override
+    public void warmUp() {
+        for (final Upstream upstream : upstreams) {
+            upstream.resolver.warmUp();
+        }
+    }
+
+    /**
+     * Flushes the caches of all resolvers of the race
+     */
+    @Override
+    public void flushCache() {
+        for (final Upstream upstream : upstreams) {
+            upstream.resolver.flushCache();
+        }
+    }
+
+    /**
+     * Returns the resolvers sorted by their average latency, stable for equal averages. The averages are read once, as they may change while
+     * sorting.
+     */
+    private Upstream[] orderByLatency() {
+        final Upstream[] order = new Upstream[upstreams.length];
+        final double[] latencies = new double[upstreams.length];
+        for (int i = 0; i < upstreams.length; i++) {
+            final double latency = upstreams[i].latencyMillis;
+            int position = i;
+            while (position > 0 && latencies[position - 1] > latency) {
+                order[position] = order[position - 1];
+                latencies[position] = latencies[position - 1];
+                position--;
+            }
+            order[position] = upstreams[i];
+            latencies[position] = latency;
+        }
+        return order;
+    }
+
+    /**
+     * Returns the moving average of the latencies of the given resolver
+     *
+     * @param index
+     *            index of the resolver as given to the constructor
+     * @return average latency in milliseconds, 0 if the resolver has not answered yet
+     */
+    long getLatencyMillis(final int index) {
+        return Math.round(upstreams[index].latencyMillis);
+    }
+
+    /**
+     * One resolver and the moving average of its latencies
+     */
+    private static final class Upstream {
+
+        private final TxtResolver resolver;
+        private final int index;
+        private volatile double latencyMillis;
+
+        Upstream(final TxtResolver resolver, final int index) {
+            this.resolver = resolver;
+            this.index = index;
+        }
+
+        synchronized void addSample(final double sampleMillis) {
+            latencyMillis = latencyMillis == 0 ? sampleMillis : latencyMillis + LATENCY_WEIGHT * (sampleMillis - latencyMillis);
+        }
+
+        /**
+         * Adds the time a cancelled query ran without answer, only if it raises the average: the query would have taken at least that long
+         */
+        synchronized void addLowerBound(final double sampleMillis) {
+            if (sampleMillis > latencyMillis) {
+                addSample(sampleMillis);
+            }
+        }
+    }
+
+    /**
+     * The queries of one FQDN racing each other
+     */
+    private final class Race implements Cancellable {
+
+        private final String fqdn;
+        private final Executor executor;
+        private final Callback callback;
+        private final Upstream[] order;
+        private final Cancellable[] queries;
+        private final long[] startNanos;
+        private final boolean[] ended;
+        private int started;
+        private int failed;
+        private boolean done;
+        private ScheduledFuture<?> hedge;
+
+        Race(final String fqdn, final Executor executor, final Callback callback, final Upstream[] order) {
+            this.fqdn = fqdn;
+            this.executor = executor;
+            this.callback = callback;
+            this.order = order;
+            queries = new Cancellable[order.length];
+            startNanos = new long[order.length];
+            ended = new boolean[order.length];
+        }
+
+        void startNext() {
+            final int next;
+            synchronized (this) {
+                if (done || started == order.length) {
+                    return;
+                }
+                next = started++;
+                startNanos[next] = System.nanoTime();
+                if (hedge != null) {
+                    hedge.cancel(false);
+                    hedge = null;
+                }
+                if (started < order.length && hedgeDelayMillis > 0) {
+                    hedge = scheduler.schedule(this::startNext, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            final Cancellable query = order[next].resolver.resolve(fqdn, executor, new Callback() {
+
+                @Override
+                public void onAnswer(final TxtAnswer txtAnswer) {
+                    try {
+                        txtAnswer.validate();
+                    } catch (final IOException | ServiceLocatorException e) {
+                        fail(next, e);
+                        return;
+                    }
+                    win(next, txtAnswer);
+                }
+
+                @Override
+                public void onError(final Exception e) {
+                    fail(next, e);
+                }
+            });
+            final boolean lost;
+            synchronized (this) {
+                queries[next] = query;
+                lost = done && !ended[next];
+            }
+            if (lost) {
+                query.cancel();
+            }
+            if (hedgeDelayMillis == 0) {
+                startNext();
+            }
+        }
+
+        private void win(final int index, final TxtAnswer txtAnswer) {
+            final long now = System.nanoTime();
+            final Cancellable[] losers;
+            synchronized (this) {
+                ended[index] = true;
+                if (done) {
+                    return;
+                }
+                losers = finish();
+            }
+            cancel(losers, now);
+            order[index].addSample(toMillis(now - startNanos[index]));
+            callback.onAnswer(txtAnswer);
+        }
+
+        private void fail(final int index, final Exception e) {
+            order[index].addSample(Math.max(toMillis(System.nanoTime() - startNanos[index]), FAILURE_LATENCY_MILLIS));
+            final boolean allFailed;
+            final boolean noneRunning;
+            Cancellable[] losers = null;
+            synchronized (this) {
+                ended[index] = true;
+                if (done) {
+                    return;
+                }
+                failed++;
+                allFailed = failed == order.length;
+                noneRunning = failed == started;
+                if (allFailed) {
+                    losers = finish();
+                }
+            }
+            if (allFailed) {
+                cancel(losers, System.nanoTime());
+                callback.onError(e);
+            } else if (noneRunning) {
+                // a failed resolver does not hold the next one back for the hedge delay
+                startNext();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            final Cancellable[] losers;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                losers = finish();
+            }
+            cancel(losers, System.nanoTime());
+        }
+
+        /**
+         * Ends the race, must hold the lock
+         *
+         * @return queries still running by index, null for the others. They are cancelled by {@link #cancel(Cancellable[], long)} after the
+         *         lock is released, as a resolver may take locks of its own or call back on the cancelling thread.
+         */
+        private Cancellable[] finish() {
+            done = true;
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+            final Cancellable[] losers = new Cancellable[started];
+            for (int i = 0; i < started; i++) {
+                if (!ended[i]) {
+                    losers[i] = queries[i];
+                }
+            }
+            return losers;
+        }
+
+        /**
+         * Cancels the queries that lost the race, without holding the lock
+         */
+        private void cancel(final Cancellable[] losers, final long now) {
+            for (int i = 0; i < losers.length; i++) {
+                if (losers[i] != null) {
+                    losers[i].cancel();
+                    order[i].addLowerBound(toMillis(now - startNanos[i]));
+                }
+            }
+        }
+
+        private double toMillis(final long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * One running DNS resolution of an FQDN, which all callers looking up the same FQDN in the meantime join. It is handed to the backend as
+ * callback and delivers the result to every joined callback.
+ */
+final class InFlightLookup implements Consumer<LookupStatus> {
+
+    private final String fqdn;
+    private final long startedAt;
+    private final long startedNanos = System.nanoTime();
+    private final List<Consumer<LookupStatus>> callbacks = new ArrayList<>();
+    private boolean completed;
+    private int attempts = 1;
+    private TxtResolver.Cancellable query;
+    private ScheduledFuture<?> deadline;
+
+    /**
+     * Constructor
+     *
+     * @param fqdn
+     *            fully qualified domain name to resolve
+     * @param startedAt
+     *            start time in milliseconds
+     * @param callback
+     *            optional callback of the caller starting the lookup
+     */
+    InFlightLookup(final String fqdn, final long startedAt, final Consumer<LookupStatus> callback) {
+        this.fqdn = fqdn;
+        this.startedAt = startedAt;
+        if (callback != null) {
+            callbacks.add(callback);
+        }
+    }
+
+    String getFqdn() {
+        return fqdn;
+    }
+
+    long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Returns the start time for measuring the latency of this lookup
+     *
+     * @return value of {@link System#nanoTime()} at the start
+     */
+    long getStartedNanos() {
+        return startedNanos;
+    }
+
+    boolean isFor(final String otherFqdn) {
+        return fqdn != null && fqdn.equalsIgnoreCase(otherFqdn);
+    }
+
+    /**
+     * Registers a further callback for the result of this lookup
+     *
+     * @param callback
+     *            optional callback
+     * @return false if the lookup already completed and the callback was not registered
+     */
+    synchronized boolean join(final Consumer<LookupStatus> callback) {
+        if (completed) {
+            return false;
+        }
+        if (callback != null) {
+            callbacks.add(callback);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a callback registered before, e.g. after its caller stopped waiting for the result. A callback that already got the result
+     * or was handed over to a superseding lookup is not affected.
+     *
+     * @param callback
+     *            callback of the caller, also if it was registered wrapped in an {@link ExecutorCallback}
+     */
+    synchronized void detach(final Consumer<LookupStatus> callback) {
+        callbacks.removeIf(registered -> registered == callback
+                || registered instanceof ExecutorCallback && ((ExecutorCallback) registered).getCallback() == callback);
+    }
+
+    /**
+     * Counts a further query of this lookup after the previous one failed
+     *
+     * @param maxAttempts
+     *            maximum number of queries of this lookup
+     * @return number of the retry, 1 for the second query, or 0 if the lookup already completed or has no attempt left
+     */
+    synchronized int startRetry(final int maxAttempts) {
+        if (completed || attempts >= maxAttempts) {
+            return 0;
+        }
+        return attempts++;
+    }
+
+    /**
+     * Sets the query of the backend resolving this lookup, it is cancelled right away if the lookup already completed
+     *
+     * @param query
+     *            handle to cancel the query
+     */
+    void setQuery(final TxtResolver.Cancellable query) {
+        synchronized (this) {
+            this.query = query;
+            if (!completed) {
+                return;
+            }
+        }
+        query.cancel();
+    }
+
+    /**
+     * Sets the task ending this lookup at its deadline, it is cancelled once the lookup completes
+     *
+     * @param deadline
+     *            scheduled task
+     */
+    void setDeadline(final ScheduledFuture<?> deadline) {
+        synchronized (this) {
+            this.deadline = deadline;
+            if (!completed) {
+                return;
+            }
+        }
+        deadline.cancel(false);
+    }
+
+    /**
+     * Cancels the query of the backend, e.g. after this lookup was superseded or timed out
+     */
+    void cancelQuery() {
+        final TxtResolver.Cancellable running;
+        synchronized (this) {
+            running = query;
+        }
+        if (running != null) {
+            running.cancel();
+        }
+    }
+
+    /**
+     * Completes this lookup without delivering a result and returns its callbacks, e.g. to join them to the lookup superseding it
+     *
+     * @return callbacks registered so far
+     */
+    synchronized List<Consumer<LookupStatus>> takeOverCallbacks() {
+        completed = true;
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+        final List<Consumer<LookupStatus>> takenOver = new ArrayList<>(callbacks);
+        callbacks.clear();
+        return takenOver;
+    }
+
+    /**
+     * Completes this lookup and delivers its status to all callbacks, the callbacks of each executor in one task. A failing callback does not
+     * keep the others from being called, the first failure on the calling thread is rethrown afterwards.
+     *
+     * @param lookupStatus
+     *            result of the lookup
+     */
+    @Override
+    public void accept(final LookupStatus lookupStatus) {
+        complete(lookupStatus, null);
+    }
+
+    /**
+     * Completes this lookup like {@link #accept(LookupStatus)}, {@link ResultCallback}s get the result taken right away
+     *
+     * @param lookupStatus
+     *            result of the lookup
+     * @param lookupResult
+     *            takes the result from the state the lookup ended with, null to call {@link ResultCallback}s with the status only
+     */
+    void complete(final LookupStatus lookupStatus, final Supplier<LookupResult> lookupResult) {
+        deliver(takeOverCallbacks(), lookupStatus, lookupResult, false);
+    }
+
+    /**
+     * Completes this lookup after its deadline passed: {@link TimeoutCallback}s are told so, all other callbacks get
+     * {@link LookupStatus#ERROR}
+     */
+    void timeOut() {
+        deliver(takeOverCallbacks(), LookupStatus.ERROR, null, true);
+    }
+
+    static void deliver(final List<Consumer<LookupStatus>> callbacks, final LookupStatus lookupStatus) {
+        deliver(callbacks, lookupStatus, null, false);
+    }
+
+    static void deliver(final List<Consumer<LookupStatus>> callbacks, final LookupStatus lookupStatus, final Supplier<LookupResult> lookupResult) {
+        deliver(callbacks, lookupStatus, lookupResult, false);
+    }
+
+    /**
+     * Delivers the status to the given callbacks: the {@link ExecutorCallback}s in one task per executor, all others on the calling thread.
+     * The result for {@link ResultCallback}s is taken here, before any task runs.
+     */
+    private static void deliver(final List<Consumer<LookupStatus>> callbacks, final LookupStatus lookupStatus,
+            final Supplier<LookupResult> lookupResultSupplier, final boolean timedOut) {
+        final LookupResult lookupResult = lookupResultSupplier != null && wantsResult(callbacks) ? lookupResultSupplier.get() : null;
+        List<Consumer<LookupStatus>> direct = null;
+        Map<Executor, List<Consumer<LookupStatus>>> batches = null;
+        for (final Consumer<LookupStatus> callback : callbacks) {
+            if (callback instanceof ExecutorCallback) {
+                if (batches == null) {
+                    batches = new IdentityHashMap<>();
+                }
+                final ExecutorCallback executorCallback = (ExecutorCallback) callback;
+                batches.computeIfAbsent(executorCallback.getExecutor(), executor -> new ArrayList<>()).add(executorCallback.getCallback());
+            } else {
+                if (direct == null) {
+                    direct = new ArrayList<>(callbacks.size());
+                }
+                direct.add(callback);
+            }
+        }
+        RuntimeException failure = null;
+        if (batches != null) {
+            for (final Map.Entry<Executor, List<Consumer<LookupStatus>>> batch : batches.entrySet()) {
+                try {
+                    execute(batch.getKey(), batch.getValue(), lookupStatus, lookupResult, timedOut);
+                } catch (final RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+        if (direct != null) {
+            try {
+                run(direct, lookupStatus, lookupResult, timedOut);
+            } catch (final RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static boolean wantsResult(final List<Consumer<LookupStatus>> callbacks) {
+        for (final Consumer<LookupStatus> callback : callbacks) {
+            if (callback instanceof ResultCallback
+                    || callback instanceof ExecutorCallback && ((ExecutorCallback) callback).getCallback() instanceof ResultCallback) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void execute(final Executor executor, final List<Consumer<LookupStatus>> batch, final LookupStatus lookupStatus,
+            final LookupResult lookupResult, final boolean timedOut) {
+        final Runnable task = () -> run(batch, lookupStatus, lookupResult, timedOut);
+        try {
+            executor.execute(task);
+        } catch (final RejectedExecutionException e) {
+            // e.g. the executor of the caller was shut down, its callbacks must not wait forever
+            task.run();
+        }
+    }
+
+    /**
+     * Calls the given callbacks. A failing callback does not keep the others from being called, the first failure is rethrown afterwards.
+     */
+    private static void run(final List<Consumer<LookupStatus>> callbacks, final LookupStatus lookupStatus, final LookupResult lookupResult,
+            final boolean timedOut) {
+        RuntimeException failure = null;
+        for (final Consumer<LookupStatus> callback : callbacks) {
+            try {
+                if (timedOut && callback instanceof TimeoutCallback) {
+                    ((TimeoutCallback) callback).onTimeout();
+                } else if (lookupResult != null && callback instanceof ResultCallback) {
+                    ((ResultCallback) callback).onResult(lookupResult);
+                } else {
+                    callback.accept(lookupStatus);
+                }
+            } catch (final RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Immutable state of a service locator. A new instance is published for every change, so readers get the FQDN, status and endpoint table
+ * of one consistent point in time with a single volatile read.
+ */
+final class LocatorState {
+
+    static final LocatorState INITIAL = new LocatorState(null, EndpointTable.EMPTY, LookupStatus.NOT_STARTED, null, Long.MIN_VALUE);
+
+    private final String fqdn;
+    private final EndpointTable endpointTable;
+    private final LookupStatus lookupStatus;
+    private final InFlightLookup inFlightLookup;
+    private final long negativeUntil;
+
+    private LocatorState(final String fqdn, final EndpointTable endpointTable, final LookupStatus lookupStatus, final InFlightLookup inFlightLookup,
+            final long negativeUntil) {
+        this.fqdn = fqdn;
+        this.endpointTable = endpointTable;
+        this.lookupStatus = lookupStatus;
+        this.inFlightLookup = inFlightLookup;
+        this.negativeUntil = negativeUntil;
+    }
+
+    /**
+     * Returns the state of a locator whose table was restored from a previous process instead of being resolved
+     *
+     * @param endpointTable
+     *            restored table
+     * @return new state
+     */
+    static LocatorState restored(final EndpointTable endpointTable) {
+        return new LocatorState(endpointTable.getFqdn(), endpointTable, LookupStatus.SUCCESS, null, Long.MIN_VALUE);
+    }
+
+    String getFqdn() {
+        return fqdn;
+    }
+
+    EndpointTable getEndpointTable() {
+        return endpointTable;
+    }
+
+    LookupStatus getLookupStatus() {
+        return lookupStatus;
+    }
+
+    boolean isRunning() {
+        return inFlightLookup != null;
+    }
+
+    /**
+     * Returns the running lookup
+     *
+     * @return running lookup or null
+     */
+    InFlightLookup getInFlightLookup() {
+        return inFlightLookup;
+    }
+
+    /**
+     * Returns whether entries may be served beyond their TTL, which is the case while the table could not be refreshed yet
+     *
+     * @return true while a lookup is running or after it failed
+     */
+    boolean isStaleAllowed() {
+        return inFlightLookup != null || lookupStatus != LookupStatus.SUCCESS;
+    }
+
+    /**
+     * Returns whether the failed or empty lookup of the given FQDN is still cached, so a new lookup ends right away with the same status
+     *
+     * @param otherFqdn
+     *            fully qualified domain name to look up
+     * @param now
+     *            current time in milliseconds of the clock of the locator
+     * @return true while no lookup is running and the negative result of the FQDN has not expired
+     */
+    boolean isNegativelyCached(final String otherFqdn, final long now) {
+        return inFlightLookup == null && now < negativeUntil && fqdn != null && fqdn.equalsIgnoreCase(otherFqdn);
+    }
+
+    /**
+     * Returns the state of a started lookup. The table of the same FQDN keeps being served until the new one replaces it, the table of
+     * another FQDN is dropped.
+     *
+     * @param lookup
+     *            lookup started
+     * @return new state
+     */
+    LocatorState startLookup(final InFlightLookup lookup) {
+        final EndpointTable table = endpointTable.isFor(lookup.getFqdn()) ? endpointTable : EndpointTable.EMPTY;
+        return new LocatorState(lookup.getFqdn(), table, lookupStatus, lookup, Long.MIN_VALUE);
+    }
+
+    LocatorState withoutInFlightLookup() {
+        return inFlightLookup == null ? this : new LocatorState(fqdn, endpointTable, lookupStatus, null, negativeUntil);
+    }
+
+    LocatorState withLookupStatus(final LookupStatus newLookupStatus) {
+        return newLookupStatus == lookupStatus ? this : new LocatorState(fqdn, endpointTable, newLookupStatus, inFlightLookup, negativeUntil);
+    }
+
+    LocatorState withEndpointTable(final EndpointTable newEndpointTable, final LookupStatus newLookupStatus) {
+        return new LocatorState(fqdn, newEndpointTable, newLookupStatus, inFlightLookup, negativeUntil);
+    }
+
+    /**
+     * Returns the state caching its negative result up to the given time
+     *
+     * @param newNegativeUntil
+     *            time in milliseconds of the clock of the locator until which lookups of the FQDN end right away
+     * @return new state
+     */
+    LocatorState withNegativeUntil(final long newNegativeUntil) {
+        return new LocatorState(fqdn, endpointTable, lookupStatus, inFlightLookup, newNegativeUntil);
+    }
+}
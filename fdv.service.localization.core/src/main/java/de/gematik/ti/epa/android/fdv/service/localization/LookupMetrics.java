@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=LookupMetrics]
+ */
+public final class LookupMetrics implements LookupMetricsListener {
+
+    private final LongAdder[] lookups = newAdders(LookupStatus.values().length);
+    private final LongAdder negativeCacheHits = new LongAdder();
+    private final ConcurrentHashMap<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Histogram parseTimes = new Histogram();
+    private final LongAdder answers = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder[] endpointReads = newAdders(EndpointRead.values().length);
+
+    private static LongAdder[] newAdders(final int count) {
+        final LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    @Override
+    public void onLookupCompleted(final String fqdn, final String backend, final LookupStatus lookupStatus, final long latencyNanos) {
+        lookups[lookupStatus.ordinal()].increment();
+        Histogram histogram = latencies.get(backend);
+        if (histogram == null) {
+            histogram = latencies.computeIfAbsent(backend, key -> new Histogram());
+        }
+        histogram.record(latencyNanos);
+    }
+
+    @Override
+    public void onNegativeCacheHit(final String fqdn, final LookupStatus lookupStatus) {
+        negativeCacheHits.increment();
+    }
+
+    @Override
+    public void onAnswerParsed(final String fqdn, final int recordCount, final long parseNanos) {
+        answers.increment();
+        records.add(recordCount);
+        parseTimes.record(parseNanos);
+    }
+
+    @Override
+    public void onEndpointRead(final ServiceInterfaceName serviceInterfaceName, final EndpointRead endpointRead) {
+        endpointReads[endpointRead.ordinal()].increment();
+    }
+
+    /**
+     * Returns the number of lookups that ended with the given status
+     *
+     * @param lookupStatus
+     *            status the lookups ended with
+     * @return number of lookups
+     */
+    public long getLookupCount(final LookupStatus lookupStatus) {
+        return lookups[lookupStatus.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of lookups that ended right away with a cached negative result
+     *
+     * @return number of lookups
+     */
+    public long getNegativeCacheHitCount() {
+        return negativeCacheHits.sum();
+    }
+
+    /**
+     * Returns the names of all backends that ended a lookup
+     *
+     * @return unmodifiable view of the backend names
+     */
+    public Set<String> getBackends() {
+        return Collections.unmodifiableSet(latencies.keySet());
+    }
+
+    /**
+     * Returns the latencies of the lookups of the given backend
+     *
+     * @param backend
+     *            name of the backend, see {@link TxtResolver#getName()}
+     * @return histogram of the latencies, empty if the backend did not end a lookup yet
+     */
+    public Histogram getLatencyHistogram(final String backend) {
+        final Histogram histogram = latencies.get(backend);
+        return histogram != null ? histogram : new Histogram();
+    }
+
+    /**
+     * Returns the times to parse the TXT records of an answer
+     *
+     * @return histogram of the parse times
+     */
+    public Histogram getParseTimeHistogram() {
+        return parseTimes;
+    }
+
+    /**
+     * Returns the number of parsed answers
+     *
+     * @return number of answers
+     */
+    public long getAnswerCount() {
+        return answers.sum();
+    }
+
+    /**
+     * Returns the number of TXT records of all parsed answers
+     *
+     * @return number of records
+     */
+    public long getRecordCount() {
+        return records.sum();
+    }
+
+    /**
+     * Returns the number of endpoint reads with the given outcome
+     *
+     * @param endpointRead
+     *            outcome of the reads
+     * @return number of reads
+     */
+    public long getEndpointReadCount(final EndpointRead endpointRead) {
+        return endpointReads[endpointRead.ordinal()].sum();
+    }
+
+    /**
+     * Histogram of durations with buckets growing by powers of two, from below one microsecond up to 2^30 microseconds, about 18 minutes. The
+     * last bucket counts all longer durations. Recording does not allocate or lock.
+     */
+    public static final class Histogram {
+
+        /**
+         * Number of buckets: bucket 0 counts durations below one microsecond, bucket i durations from 2^(i-1) up to 2^i microseconds, the last
+         * one all longer durations
+         */
+        public static final int BUCKET_COUNT = 32;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder totalNanos = new LongAdder();
+
+        /**
+         * Counts one duration
+         *
+         * @param nanos
+         *            duration in nanoseconds
+         */
+        public void record(final long nanos) {
+            final long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+            buckets.incrementAndGet(Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1));
+            totalNanos.add(nanos);
+        }
+
+        /**
+         * Returns the number of durations in the given bucket
+         *
+         * @param bucket
+         *            index of the bucket, 0 up to {@link #BUCKET_COUNT} - 1
+         * @return number of durations
+         */
+        public long getBucketCount(final int bucket) {
+            return buckets.get(bucket);
+        }
+
+        /**
+         * Returns the exclusive upper bound of the given bucket
+         *
+         * @param bucket
+         *            index of the bucket, 0 up to {@link #BUCKET_COUNT} - 1
+         * @return upper bound in microseconds, Long.MAX_VALUE for the last bucket
+         */
+        public static long getBucketUpperBoundMicros(final int bucket) {
+            return bucket < BUCKET_COUNT - 1 ? 1L << bucket : Long.MAX_VALUE;
+        }
+
+        /**
+         * Returns the number of all durations
+         *
+         * @return number of durations
+         */
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the sum of all durations
+         *
+         * @return sum in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * Returns an upper bound of the given percentile: the upper bound of the bucket holding it
+         *
+         * @param percentile
+         *            percentile, greater than 0 up to 100
+         * @return upper bound in microseconds, 0 if no duration was recorded
+         */
+        public long getPercentileMicros(final double percentile) {
+            final long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(count * percentile / 100);
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                cumulative += buckets.get(i);
+                if (cumulative >= rank) {
+                    return getBucketUpperBoundMicros(i);
+                }
+            }
+            return getBucketUpperBoundMicros(BUCKET_COUNT - 1);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=LookupMetricsListener]
+ */
+public interface LookupMetricsListener {
+
+    /**
+     * Outcome of one read of an endpoint URL
+     */
+    enum EndpointRead {
+        /**
+         * The entry is within its TTL
+         */
+        HIT,
+        /**
+         * The entry expired, but is served within the serve-stale window
+         */
+        STALE,
+        /**
+         * The entry expired and null was returned
+         */
+        EXPIRED,
+        /**
+         * The FQDN has no entry for the interface and null was returned
+         */
+        MISS
+    }
+
+    /**
+     * Called on the resolver thread when a lookup ended, after all its retries
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param backend
+     *            name of the resolver that answered, see {@link TxtResolver#getName()}
+     * @param lookupStatus
+     *            status the lookup ended with
+     * @param latencyNanos
+     *            time in nanoseconds from the start of the lookup until it ended
+     */
+    default void onLookupCompleted(final String fqdn, final String backend, final LookupStatus lookupStatus, final long latencyNanos) {
+        // Nothing
+    }
+
+    /**
+     * Called on the calling thread when a lookup ended right away with the cached negative result of its FQDN
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param lookupStatus
+     *            cached status
+     */
+    default void onNegativeCacheHit(final String fqdn, final LookupStatus lookupStatus) {
+        // Nothing
+    }
+
+    /**
+     * Called on the resolver thread when the TXT records of an answer were parsed
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param records
+     *            number of TXT records in the answer
+     * @param parseNanos
+     *            time in nanoseconds to parse them
+     */
+    default void onAnswerParsed(final String fqdn, final int records, final long parseNanos) {
+        // Nothing
+    }
+
+    /**
+     * Called on the calling thread for every read of an endpoint URL
+     *
+     * @param serviceInterfaceName
+     *            name of the gateway interface read
+     * @param endpointRead
+     *            outcome of the read
+     */
+    default void onEndpointRead(final ServiceInterfaceName serviceInterfaceName, final EndpointRead endpointRead) {
+        // Nothing
+    }
+}
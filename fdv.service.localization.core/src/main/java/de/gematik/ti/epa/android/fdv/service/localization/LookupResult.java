@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=LookupResult]
+ */
+public final class LookupResult {
+
+    private final String fqdn;
+    private final LookupStatus lookupStatus;
+    private final Map<ServiceInterfaceName, URL> endpointURLs;
+    private final String homeCommunityId;
+
+    LookupResult(final String fqdn, final LookupStatus lookupStatus, final EnumMap<ServiceInterfaceName, URL> endpointURLs,
+            final String homeCommunityId) {
+        this.fqdn = fqdn;
+        this.lookupStatus = lookupStatus;
+        this.endpointURLs = Collections.unmodifiableMap(endpointURLs);
+        this.homeCommunityId = homeCommunityId;
+    }
+
+    /**
+     * Returns the looked up FQDN
+     *
+     * @return fully qualified domain name
+     */
+    public String getFqdn() {
+        return fqdn;
+    }
+
+    /**
+     * Returns the status the lookup ended with
+     *
+     * @return status of service lookup in DNS
+     */
+    public LookupStatus getLookupStatus() {
+        return lookupStatus;
+    }
+
+    /**
+     * Returns whether the lookup ended with {@link LookupStatus#SUCCESS}
+     *
+     * @return true on success
+     */
+    public boolean isSuccess() {
+        return lookupStatus == LookupStatus.SUCCESS;
+    }
+
+    /**
+     * Returns the endpoint URL of the given interface valid when the lookup ended
+     *
+     * @param serviceInterfaceName
+     *            name of the gateway interface where to get the URL for
+     * @return URL of given interface name or null if unknown
+     */
+    public URL getEndpointURL(final ServiceInterfaceName serviceInterfaceName) {
+        return endpointURLs.get(serviceInterfaceName);
+    }
+
+    /**
+     * Returns the endpoint URLs of all interfaces valid when the lookup ended
+     *
+     * @return unmodifiable map of URLs by interface name
+     */
+    public Map<ServiceInterfaceName, URL> getEndpointURLs() {
+        return endpointURLs;
+    }
+
+    /**
+     * Returns the home community ID valid when the lookup ended
+     *
+     * @return home community ID or null if unknown
+     */
+    public String getHomeCommunityId() {
+        return homeCommunityId;
+    }
+
+    @Override
+    public String toString() {
+        return "LookupResult{fqdn=" + fqdn + ", lookupStatus=" + lookupStatus + ", endpointURLs=" + endpointURLs + ", homeCommunityId=" + homeCommunityId + "}";
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import org.minidns.cache.LruCache;
+import org.minidns.dnsmessage.DnsMessage;
+import org.minidns.dnsmessage.Question;
+import org.minidns.record.Record;
+
+/**
+ * Cache of the DNSSEC resolver of minidns that keeps the records of the chain of trust and the delegations, but no answers to TXT
+ * questions. The process-wide cache of minidns answers a TXT question until the TTL of the record ran out and with its original TTL, so a
+ * refresh before the expiry would never reach the name server and extend the served table beyond the TTL of the record. The service
+ * locator caches the TXT records itself.
+ */
+final class MinidnsCache extends LruCache {
+
+    @Override
+    protected synchronized void putNormalized(final DnsMessage query, final DnsMessage message) {
+        final Question question = query.getQuestion();
+        if (question != null && question.type == Record.TYPE.TXT) {
+            return;
+        }
+        super.putNormalized(query, message);
+    }
+}
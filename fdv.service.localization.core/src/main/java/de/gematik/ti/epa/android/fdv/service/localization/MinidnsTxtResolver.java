@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.minidns.AbstractDnsClient;
+import org.minidns.cache.LruCache;
+import org.minidns.hla.DnssecResolverApi;
+import org.minidns.hla.ResolverResult;
+import org.minidns.record.Data;
+import org.minidns.record.Record;
+import org.minidns.record.SOA;
+import org.minidns.record.TXT;
+
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * Resolver querying the TXT records with the DNSSEC resolver of minidns, for Android below 10
+ */
+final class MinidnsTxtResolver implements TxtResolver {
+
+    private final Supplier<DnssecResolverApi> setup;
+    private volatile DnssecResolverApi dnssecResolverApi;
+
+    /**
+     * Constructor for a resolver using a DNSSEC resolver of minidns created by {@link #newDnssecResolverApi()}
+     */
+    MinidnsTxtResolver() {
+        this(MinidnsTxtResolver::newDnssecResolverApi);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param setup
+     *            sets minidns up and returns its DNSSEC resolver, e.g. {@code MinidnsSetup#getDnssecResolverApi()}. It is called on the thread
+     *            of the first query or warm-up, never on the thread constructing this resolver.
+     */
+    MinidnsTxtResolver(final Supplier<DnssecResolverApi> setup) {
+        this.setup = setup;
+    }
+
+    /**
+     * Resolves on the given executor. A cancelled query is not sent if it has not started yet, so it does not hold a thread of the executor. A
+     * query already waiting for its answer keeps its thread until the socket of minidns times out, as plain sockets ignore interrupts, but its
+     * outcome is dropped.
+     */
+    @Override
+    public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        executor.execute(() -> {
+            if (cancelled.get()) {
+                return;
+            }
+            final TxtAnswer txtAnswer;
+            try {
+                final ResolverResult<TXT> resultTxt = getDnssecResolverApi().resolve(fqdn, TXT.class);
+                final Set<TXT> resultTxtAnswers = resultTxt.getAnswers();
+                txtAnswer = toTxtAnswer(resultTxt.getRawAnswer().answerSection, resultTxtAnswers);
+                setNegativeTtl(txtAnswer, resultTxt.getRawAnswer().authoritySection);
+            } catch (Exception e) {
+                if (cancelled.get()) {
+                    return;
+                }
+                callback.onError(e);
+                throw new ServiceLocatorException("Error on resolve FQDN " + fqdn + " " + e.getMessage(), e);
+            }
+            if (!cancelled.get()) {
+                callback.onAnswer(txtAnswer);
+            }
+        });
+        return () -> cancelled.set(true);
+    }
+
+    /**
+     * Returns a new DNSSEC resolver of minidns whose cache keeps no TXT answers, see {@link MinidnsCache}
+     *
+     * @return DNSSEC resolver, loading its trust anchors on creation
+     */
+    static DnssecResolverApi newDnssecResolverApi() {
+        return new DnssecResolverApi(MinidnsCache::new);
+    }
+
+    @Override
+    public void warmUp() {
+        getDnssecResolverApi();
+    }
+
+    /**
+     * Clears the cache of the DNSSEC resolver, which holds the delegations and the chain of trust as the name servers of the previous network
+     * returned them
+     */
+    @Override
+    public void flushCache() {
+        final DnssecResolverApi api = dnssecResolverApi;
+        final AbstractDnsClient client = api != null ? api.getClient() : null;
+        if (client != null && client.getCache() instanceof LruCache) {
+            ((LruCache) client.getCache()).clear();
+        }
+    }
+
+    /**
+     * Returns the DNSSEC resolver, set up on first use
+     */
+    private DnssecResolverApi getDnssecResolverApi() {
+        DnssecResolverApi api = dnssecResolverApi;
+        if (api == null) {
+            api = setup.get();
+            dnssecResolverApi = api;
+        }
+        return api;
+    }
+
+    /**
+     * Returns the answer holding the TXT records of the answer section that belong to the answers of the question, each with its own TTL
+     *
+     * @param answerSection
+     *            records of the answer section, records of other types or owners are skipped
+     * @param answers
+     *            TXT answers to the question
+     * @return new answer
+     */
+    static TxtAnswer toTxtAnswer(final List<Record<? extends Data>> answerSection, final Set<TXT> answers) {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        for (final Record<? extends Data> record : answerSection) {
+            if (record.type == Record.TYPE.TXT && answers.contains(record.payloadData)) {
+                final byte[] blob = ((TXT) record.payloadData).getBlob();
+                txtAnswer.add(blob, 0, blob.length, record.ttl);
+            }
+        }
+        return txtAnswer;
+    }
+
+    /**
+     * Sets the negative caching TTL of an answer without TXT records from the SOA record of the authority section
+     *
+     * @param txtAnswer
+     *            answer to set the TTL of
+     * @param authoritySection
+     *            records of the authority section, null if unknown
+     */
+    static void setNegativeTtl(final TxtAnswer txtAnswer, final List<Record<? extends Data>> authoritySection) {
+        if (txtAnswer.size() > 0 || authoritySection == null) {
+            return;
+        }
+        for (final Record<? extends Data> record : authoritySection) {
+            if (record.type == Record.TYPE.SOA) {
+                txtAnswer.setNegativeTtl(Math.min(record.ttl, ((SOA) record.payloadData).minimum));
+            }
+        }
+    }
+}
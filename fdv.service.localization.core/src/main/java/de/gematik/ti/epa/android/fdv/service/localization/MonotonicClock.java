@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=MonotonicClock]
+ */
+public interface MonotonicClock {
+
+    /**
+     * Clock of the JVM based on {@link System#nanoTime()}
+     */
+    MonotonicClock SYSTEM = () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+
+    /**
+     * Returns the current time of this clock. It only has a meaning relative to other readings of the same clock and never jumps when the
+     * wall clock of the device is changed.
+     *
+     * @return time in milliseconds
+     */
+    long millis();
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=NegativeCachePolicy]
+ */
+public final class NegativeCachePolicy {
+
+    private final long maxMissingTxtRecordMillis;
+    private final long errorMillis;
+
+    /**
+     * Constructor
+     *
+     * @param maxMissingTxtRecordMillis
+     *            how long in milliseconds a lookup ending with {@link de.gematik.ti.epa.fdv.service.localization.api.LookupStatus#MISSING_TXT_RECORD}
+     *            is cached at most, shortened to the negative caching TTL of the SOA record of the answer; 0 to not cache it
+     * @param errorMillis
+     *            how long in milliseconds a lookup ending with {@link de.gematik.ti.epa.fdv.service.localization.api.LookupStatus#ERROR} is
+     *            cached; 0 to not cache it
+     */
+    public NegativeCachePolicy(final long maxMissingTxtRecordMillis, final long errorMillis) {
+        if (maxMissingTxtRecordMillis < 0 || errorMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid negative cache policy: maxMissingTxtRecordMillis=" + maxMissingTxtRecordMillis + ", errorMillis=" + errorMillis);
+        }
+        this.maxMissingTxtRecordMillis = maxMissingTxtRecordMillis;
+        this.errorMillis = errorMillis;
+    }
+
+    /**
+     * Getter for the maximum time a missing TXT record is cached
+     *
+     * @return time in milliseconds
+     */
+    public long getMaxMissingTxtRecordMillis() {
+        return maxMissingTxtRecordMillis;
+    }
+
+    /**
+     * Getter for the time a failed lookup is cached
+     *
+     * @return time in milliseconds
+     */
+    public long getErrorMillis() {
+        return errorMillis;
+    }
+
+    /**
+     * Returns how long a missing TXT record is cached
+     *
+     * @param negativeTtl
+     *            negative caching TTL in seconds from the SOA record of the answer, see {@link TxtAnswer#getNegativeTtl()}, -1 if unknown
+     * @return time in milliseconds
+     */
+    long missingTxtRecordMillis(final long negativeTtl) {
+        if (negativeTtl < 0) {
+            return maxMissingTxtRecordMillis;
+        }
+        return Math.min(maxMissingTxtRecordMillis, TimeUnit.SECONDS.toMillis(negativeTtl));
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.IDN;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=NioTxtResolver]
+ */
+public final class NioTxtResolver implements TxtResolver, Closeable {
+
+    static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+    static final int DEFAULT_ATTEMPTS = 3;
+
+    private static final int MAX_MESSAGE_LENGTH = 65535;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MESSAGE_IDS = 65536;
+    private static final int HEADER_LENGTH = 12;
+    private static final int FLAG_QR = 0x80;
+    private static final int FLAG_TC = 0x02;
+    private static final int FLAG_RD = 0x01;
+    private static final int RCODE_MASK = 0x0F;
+    private static final int RCODE_NOERROR = 0;
+    private static final int RCODE_NXDOMAIN = 3;
+    private static final int CLASS_IN = 1;
+
+    private final InetSocketAddress[] servers;
+    private final long timeoutMillis;
+    private final int attempts;
+    private final Random random = new SecureRandom();
+    private final Queue<Query> submitted = new ConcurrentLinkedQueue<>();
+    // accessed by the selector thread only
+    private final Map<Integer, Query> pending = new HashMap<>();
+    private final PriorityQueue<Query> deadlines = new PriorityQueue<>((a, b) -> Long.compare(a.deadline, b.deadline));
+    private final Object lock = new Object();
+    private Selector selector;
+    private DatagramChannel channel;
+    private volatile boolean closed;
+
+    /**
+     * Constructor for a resolver querying the given name servers with the default timeout and number of attempts
+     *
+     * @param servers
+     *            addresses of the name servers, the attempts of a query rotate through them
+     */
+    public NioTxtResolver(final InetSocketAddress... servers) {
+        this(DEFAULT_TIMEOUT_MILLIS, DEFAULT_ATTEMPTS, servers);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param timeoutMillis
+     *            time to wait for the answer to one attempt before the query is sent again
+     * @param attempts
+     *            number of times a query is sent before it ends with an error
+     * @param servers
+     *            addresses of the name servers, the attempts of a query rotate through them
+     */
+    public NioTxtResolver(final long timeoutMillis, final int attempts, final InetSocketAddress... servers) {
+        if (servers.length == 0) {
+            throw new IllegalArgumentException("At least one name server is required");
+        }
+        if (timeoutMillis <= 0 || attempts <= 0) {
+            throw new IllegalArgumentException("Timeout and attempts must be positive");
+        }
+        this.servers = servers.clone();
+        this.timeoutMillis = timeoutMillis;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Queues the query for the selector thread, which sends it with all other queued queries. The answer is delivered on the given executor, or
+     * on the selector thread if the executor rejects it. Truncated answers are queried again over TCP on the given executor. A cancelled query
+     * is dropped by the selector thread and its answer ignored.
+     */
+    @Override
+    public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+        final Query query;
+        try {
+            query = new Query(fqdn, executor, callback);
+            submit(query);
+        } catch (final IOException | IllegalArgumentException e) {
+            deliverError(executor, callback, e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e));
+            return Cancellable.NONE;
+        }
+        return query;
+    }
+
+    /**
+     * Stops the selector thread, queries not answered yet end with an error
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Queues the query for the selector thread, started if none is running. Under the lock, so the query is either taken by a running
+     * selector thread or ended by its shutdown, never left behind for a thread that already stopped.
+     */
+    private void submit(final Query query) throws IOException {
+        synchronized (lock) {
+            start();
+            submitted.add(query);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Starts the selector thread unless it is running, must hold the lock
+     */
+    private void start() throws IOException {
+        if (closed) {
+            throw new IOException("Resolver is closed");
+        }
+        if (selector != null) {
+            return;
+        }
+        final Selector newSelector = Selector.open();
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(null);
+            channel.register(newSelector, SelectionKey.OP_READ);
+        } catch (final IOException e) {
+            newSelector.close();
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            throw e;
+        }
+        selector = newSelector;
+        final Thread thread = new Thread(this::run, "NioTxtResolver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        final ByteBuffer buffer = ByteBuffer.allocate(MAX_MESSAGE_LENGTH);
+        try {
+            while (!closed) {
+                sendSubmitted();
+                final long waitMillis = expire();
+                if (waitMillis > 0) {
+                    selector.select(waitMillis);
+                } else {
+                    selector.select();
+                }
+                selector.selectedKeys().clear();
+                receive(buffer);
+            }
+        } catch (final IOException e) {
+            closed = true;
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void sendSubmitted() {
+        Query query;
+        while (pending.size() < MESSAGE_IDS && (query = submitted.poll()) != null) {
+            if (query.cancelled) {
+                continue;
+            }
+            int id;
+            do {
+                id = random.nextInt(MESSAGE_IDS);
+            } while (pending.containsKey(id));
+            query.setId(id);
+            pending.put(id, query);
+            send(query);
+        }
+    }
+
+    private void send(final Query query) {
+        query.deadline = MonotonicClock.SYSTEM.millis() + timeoutMillis;
+        deadlines.add(query);
+        try {
+            // a datagram the channel has no room for is lost like one on the network and sent again after the timeout
+            channel.send(ByteBuffer.wrap(query.message), servers[query.attempt % servers.length]);
+        } catch (final IOException e) {
+            // e.g. an unreachable network, sent again after the timeout as well
+        }
+        query.attempt++;
+    }
+
+    /**
+     * Sends the queries without answer within their timeout again or ends them with an error
+     *
+     * @return milliseconds until the next timeout, 0 if no query is pending
+     */
+    private long expire() {
+        final long now = MonotonicClock.SYSTEM.millis();
+        Query query;
+        while ((query = deadlines.peek()) != null) {
+            if (pending.get(query.id) != query) {
+                deadlines.poll();
+            } else if (query.deadline > now && !query.cancelled) {
+                return query.deadline - now;
+            } else {
+                deadlines.poll();
+                if (query.cancelled) {
+                    pending.remove(query.id);
+                } else if (query.attempt < attempts) {
+                    send(query);
+                } else {
+                    pending.remove(query.id);
+                    deliverError(query.executor, query.callback,
+                            new SocketTimeoutException("No answer for " + query.fqdn + " after " + attempts + " attempts"));
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void receive(final ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            final SocketAddress source = channel.receive(buffer);
+            if (source == null) {
+                return;
+            }
+            buffer.flip();
+            if (buffer.remaining() < HEADER_LENGTH || !isServer(source)) {
+                continue;
+            }
+            final int id = buffer.getShort(0) & 0xFFFF;
+            final Query query = pending.get(id);
+            if (query == null || !query.isAnsweredBy(buffer)) {
+                // late answer to an ended query or a spoofed one, the query keeps waiting for its own answer
+                continue;
+            }
+            pending.remove(id);
+            if (query.cancelled) {
+                continue;
+            }
+            final byte[] response = Arrays.copyOf(buffer.array(), buffer.limit());
+            if ((response[2] & FLAG_TC) != 0) {
+                execute(query.executor, () -> resolveTcp(query, (InetSocketAddress) source));
+            } else {
+                deliver(query, response);
+            }
+        }
+    }
+
+    private boolean isServer(final SocketAddress source) {
+        for (final InetSocketAddress server : servers) {
+            if (server.equals(source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void resolveTcp(final Query query, final InetSocketAddress server) {
+        final byte[] response;
+        try (Socket socket = new Socket()) {
+            socket.connect(server, (int) timeoutMillis);
+            socket.setSoTimeout((int) timeoutMillis);
+            final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeShort(query.message.length);
+            out.write(query.message);
+            out.flush();
+            final DataInputStream in = new DataInputStream(socket.getInputStream());
+            response = new byte[in.readUnsignedShort()];
+            in.readFully(response);
+        } catch (final IOException e) {
+            if (!query.cancelled) {
+                query.callback.onError(e);
+            }
+            return;
+        }
+        if (response.length < HEADER_LENGTH || !query.isAnsweredBy(ByteBuffer.wrap(response))) {
+            if (!query.cancelled) {
+                query.callback.onError(new IOException("TCP answer for " + query.fqdn + " does not match the query"));
+            }
+            return;
+        }
+        deliverNow(query, response);
+    }
+
+    private void deliver(final Query query, final byte[] response) {
+        execute(query.executor, () -> deliverNow(query, response));
+    }
+
+    private static void deliverNow(final Query query, final byte[] response) {
+        if (query.cancelled) {
+            return;
+        }
+        final int rcode = response[3] & RCODE_MASK;
+        if (rcode != RCODE_NOERROR && rcode != RCODE_NXDOMAIN) {
+            query.callback.onError(new IOException("Error response " + rcode + " for " + query.fqdn));
+            return;
+        }
+        final TxtAnswer txtAnswer;
+        try {
+            txtAnswer = TxtAnswer.fromMessage(response);
+        } catch (final IOException e) {
+            query.callback.onError(e);
+            return;
+        }
+        query.callback.onAnswer(txtAnswer);
+    }
+
+    private static void deliverError(final Executor executor, final Callback callback, final IOException e) {
+        execute(executor, () -> callback.onError(e));
+    }
+
+    private static void execute(final Executor executor, final Runnable command) {
+        try {
+            executor.execute(command);
+        } catch (final RejectedExecutionException e) {
+            // a full or replaced executor must not swallow the answer, it is handled on the selector thread instead
+            try {
+                command.run();
+            } catch (final RuntimeException failure) {
+                // a failing callback must not stop the selector thread, which serves all other queries
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, failure);
+            }
+        }
+    }
+
+    /**
+     * Ends the selector thread: its pending queries end with an error. Unless the resolver was closed, queries queued in the meantime are
+     * handed to a new selector thread and the next query starts one as well.
+     */
+    private void shutdown() {
+        for (final Query query : pending.values()) {
+            deliverError(query.executor, query.callback, new IOException("Resolver is closed"));
+        }
+        pending.clear();
+        deadlines.clear();
+        final List<Query> left = new ArrayList<>();
+        synchronized (lock) {
+            try {
+                channel.close();
+                selector.close();
+            } catch (final IOException e) {
+                // nothing left to release
+            }
+            channel = null;
+            selector = null;
+            boolean restarted = false;
+            if (!closed && !submitted.isEmpty()) {
+                try {
+                    start();
+                    restarted = true;
+                } catch (final IOException e) {
+                    // no new channel, the queued queries end with an error
+                }
+            }
+            if (!restarted) {
+                Query query;
+                while ((query = submitted.poll()) != null) {
+                    left.add(query);
+                }
+            }
+        }
+        for (final Query query : left) {
+            deliverError(query.executor, query.callback, new IOException("Resolver is closed"));
+        }
+    }
+
+    /**
+     * One TXT query in wire format and the state of its attempts
+     */
+    private static final class Query implements Cancellable {
+
+        private final String fqdn;
+        private final Executor executor;
+        private final Callback callback;
+        private final byte[] message;
+        private int id;
+        private int attempt;
+        private long deadline;
+        private volatile boolean cancelled;
+
+        Query(final String fqdn, final Executor executor, final Callback callback) {
+            this.fqdn = fqdn;
+            this.executor = executor;
+            this.callback = callback;
+            this.message = newQuery(fqdn);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        void setId(final int id) {
+            this.id = id;
+            message[0] = (byte) (id >>> 8);
+            message[1] = (byte) id;
+        }
+
+        /**
+         * Checks that the response carries the ID and the question of this query, the name compared ignoring its case
+         */
+        boolean isAnsweredBy(final ByteBuffer response) {
+            if ((response.get(2) & FLAG_QR) == 0 || (response.getShort(0) & 0xFFFF) != id || response.getShort(4) != 1
+                    || response.limit() < message.length) {
+                return false;
+            }
+            for (int i = HEADER_LENGTH; i < message.length; i++) {
+                if (toLowerCase(response.get(i)) != message[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static byte toLowerCase(final byte value) {
+            return value >= 'A' && value <= 'Z' ? (byte) (value + ('a' - 'A')) : value;
+        }
+
+        private static byte[] newQuery(final String fqdn) {
+            final String name = IDN.toASCII(fqdn).toLowerCase(Locale.ROOT);
+            final String[] labels = name.endsWith(".") ? name.substring(0, name.length() - 1).split("\\.") : name.split("\\.");
+            int length = HEADER_LENGTH + 1 + 4;
+            for (final String label : labels) {
+                if (label.isEmpty() || label.length() > MAX_LABEL_LENGTH) {
+                    throw new IllegalArgumentException("Invalid FQDN " + fqdn);
+                }
+                length += label.length() + 1;
+            }
+            if (length - HEADER_LENGTH - 4 > MAX_NAME_LENGTH) {
+                throw new IllegalArgumentException("Invalid FQDN " + fqdn);
+            }
+            final ByteBuffer message = ByteBuffer.allocate(length);
+            message.putShort((short) 0).put((byte) FLAG_RD).put((byte) 0).putShort((short) 1).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) 0);
+            for (final String label : labels) {
+                message.put((byte) label.length()).put(label.getBytes(StandardCharsets.US_ASCII));
+            }
+            message.put((byte) 0).putShort((short) TxtRecordParser.TYPE_TXT).putShort((short) CLASS_IN);
+            return message.array();
+        }
+    }
+}
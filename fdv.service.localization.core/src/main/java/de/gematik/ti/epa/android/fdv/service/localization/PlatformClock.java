@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.ServiceLoader;
+
+/**
+ * Holds the clock of the platform: the first {@link MonotonicClock} registered as service, e.g. by the Android module, or
+ * {@link MonotonicClock#SYSTEM} on a plain JVM
+ */
+final class PlatformClock {
+
+    static final MonotonicClock INSTANCE = load();
+
+    private PlatformClock() {
+        // static access only
+    }
+
+    private static MonotonicClock load() {
+        for (final MonotonicClock clock : ServiceLoader.load(MonotonicClock.class)) {
+            return clock;
+        }
+        return MonotonicClock.SYSTEM;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=RefreshAheadPolicy]
+ */
+public final class RefreshAheadPolicy {
+
+    /**
+     * Shortest delay in milliseconds between a successful lookup and its refresh
+     */
+    public static final long MIN_REFRESH_DELAY_MILLIS = 1000;
+    /**
+     * Number of failed refreshes in a row after which the delay until the next one stops doubling
+     */
+    private static final int MAX_BACKOFF_DOUBLINGS = 16;
+
+    private final double ttlFraction;
+    private final double jitterFraction;
+
+    /**
+     * Constructor
+     *
+     * @param ttlFraction
+     *            fraction of the smallest record TTL after which the TXT records are resolved again, greater than 0 and less than 1
+     * @param jitterFraction
+     *            maximum relative deviation from that point in time, in both directions, to spread refreshes of many FQDNs, 0 up to less
+     *            than 1
+     */
+    public RefreshAheadPolicy(final double ttlFraction, final double jitterFraction) {
+        if (!(ttlFraction > 0 && ttlFraction < 1) || !(jitterFraction >= 0 && jitterFraction < 1)) {
+            throw new IllegalArgumentException("Invalid refresh ahead policy: ttlFraction=" + ttlFraction + ", jitterFraction=" + jitterFraction);
+        }
+        this.ttlFraction = ttlFraction;
+        this.jitterFraction = jitterFraction;
+    }
+
+    /**
+     * Getter for the fraction of the smallest record TTL after which the TXT records are resolved again
+     *
+     * @return fraction of the smallest record TTL
+     */
+    public double getTtlFraction() {
+        return ttlFraction;
+    }
+
+    /**
+     * Getter for the maximum relative deviation of the refresh time
+     *
+     * @return maximum relative deviation
+     */
+    public double getJitterFraction() {
+        return jitterFraction;
+    }
+
+    /**
+     * Returns the delay until the next refresh, never shorter than {@link #MIN_REFRESH_DELAY_MILLIS}
+     *
+     * @param lifetimeMillis
+     *            time in milliseconds until the first entry of the resolved table expires
+     * @return delay in milliseconds
+     */
+    long nextRefreshDelay(final long lifetimeMillis) {
+        final double jitter = jitterFraction * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        final long delay = (long) (lifetimeMillis * ttlFraction * (1 + jitter));
+        return Math.max(MIN_REFRESH_DELAY_MILLIS, delay);
+    }
+
+    /**
+     * Returns the delay until the next refresh after refreshes failed, doubling from {@link #MIN_REFRESH_DELAY_MILLIS} with each failure in
+     * a row, but never beyond the expiry of the served table
+     *
+     * @param failures
+     *            number of failed refreshes in a row, at least 1
+     * @param lifetimeMillis
+     *            time in milliseconds until the first entry of the served table expires, positive
+     * @return delay in milliseconds
+     */
+    long nextRetryDelay(final int failures, final long lifetimeMillis) {
+        final long backoff = MIN_REFRESH_DELAY_MILLIS << Math.min(failures - 1, MAX_BACKOFF_DOUBLINGS);
+        return Math.min(backoff, lifetimeMillis);
+    }
+}
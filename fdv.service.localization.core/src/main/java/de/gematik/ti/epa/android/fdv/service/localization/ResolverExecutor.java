@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=ResolverExecutor]
+ */
+public final class ResolverExecutor {
+
+    /**
+     * Default maximum number of threads resolving at the same time
+     */
+    public static final int DEFAULT_MAX_THREADS = 4;
+    /**
+     * Default maximum number of resolve tasks waiting for a thread
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    /**
+     * Default time in seconds an idle thread is kept before it terminates
+     */
+    public static final long DEFAULT_KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+    private static ThreadPoolExecutor executor;
+    private static ScheduledThreadPoolExecutor scheduler;
+    private static ThreadPoolExecutor callbackExecutor;
+
+    private ResolverExecutor() {
+        // static access only
+    }
+
+    /**
+     * Replaces the process-wide executor by one with the given limits. Resolve tasks already queued on the previous executor are still
+     * executed, its threads terminate afterwards.
+     *
+     * @param maxThreads
+     *            maximum number of threads resolving at the same time
+     * @param queueCapacity
+     *            maximum number of resolve tasks waiting for a thread, further lookups end with {@link de.gematik.ti.epa.fdv.service.localization.api.LookupStatus#ERROR}
+     * @param keepAliveSeconds
+     *            time in seconds an idle thread is kept before it terminates
+     */
+    public static void configure(final int maxThreads, final int queueCapacity, final long keepAliveSeconds) {
+        final ThreadPoolExecutor newExecutor = newExecutor(maxThreads, queueCapacity, keepAliveSeconds);
+        final ThreadPoolExecutor previousExecutor;
+        synchronized (ResolverExecutor.class) {
+            previousExecutor = executor;
+            executor = newExecutor;
+        }
+        if (previousExecutor != null) {
+            previousExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the process-wide executor, which is created with the default limits on first use
+     *
+     * @return executor the service locators submit their resolve tasks and answer callbacks into
+     */
+    static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = newExecutor(DEFAULT_MAX_THREADS, DEFAULT_QUEUE_CAPACITY, DEFAULT_KEEP_ALIVE_SECONDS);
+        }
+        return executor;
+    }
+
+    /**
+     * Returns the process-wide scheduler for delayed work like refreshes, its single thread terminates while nothing is scheduled. Scheduled
+     * tasks must only hand work over to the executor or complete futures.
+     *
+     * @return scheduler shared by all service locators
+     */
+    static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new ResolverThreadFactory("ServiceLocator-scheduler-", POOL_COUNT.incrementAndGet()));
+            scheduler.setKeepAliveTime(DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Returns the process-wide executor lookup callbacks are delivered on unless the caller gives one, so no callback runs on a resolver
+     * thread. Its single thread terminates while there is nothing to deliver, its queue is unbounded as callbacks must not be lost.
+     *
+     * @return executor shared by all service locators
+     */
+    static synchronized Executor getCallbackExecutor() {
+        if (callbackExecutor == null) {
+            callbackExecutor = new ThreadPoolExecutor(1, 1, DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new ResolverThreadFactory("ServiceLocator-callback-", POOL_COUNT.incrementAndGet()));
+            callbackExecutor.allowCoreThreadTimeOut(true);
+        }
+        return callbackExecutor;
+    }
+
+    /**
+     * Creates an executor with bounded threads and queue whose idle threads terminate after the keep alive time
+     *
+     * @param maxThreads
+     *            maximum number of threads
+     * @param queueCapacity
+     *            maximum number of waiting tasks
+     * @param keepAliveSeconds
+     *            time in seconds an idle thread is kept
+     * @return new executor
+     */
+    static ThreadPoolExecutor newExecutor(final int maxThreads, final int queueCapacity, final long keepAliveSeconds) {
+        if (maxThreads < 1 || queueCapacity < 1 || keepAliveSeconds < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid resolver executor limits: maxThreads=" + maxThreads + ", queueCapacity=" + queueCapacity + ", keepAliveSeconds=" + keepAliveSeconds);
+        }
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, keepAliveSeconds, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ResolverThreadFactory("ServiceLocator-resolver-", POOL_COUNT.incrementAndGet()));
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    private static final class ResolverThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final int pool;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private ResolverThreadFactory(final String prefix, final int pool) {
+            this.prefix = prefix;
+            this.pool = pool;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
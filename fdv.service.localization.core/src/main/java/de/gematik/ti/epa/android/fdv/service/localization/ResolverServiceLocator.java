@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=ResolverServiceLocator]
+ */
+public class ResolverServiceLocator extends AbstractServiceLocator {
+
+    private final TxtResolver resolver;
+
+    /**
+     * Constructor
+     *
+     * @param resolver
+     *            resolver of the TXT records
+     */
+    public ResolverServiceLocator(final TxtResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    void warmUp() {
+        resolver.warmUp();
+    }
+
+    @Override
+    void flushResolverCache() {
+        resolver.flushCache();
+    }
+
+    @Override
+    String getBackendName() {
+        return resolver.getName();
+    }
+
+    @Override
+    protected void doResolve(final String fqdn, final ThreadPoolExecutor executor, final Consumer<LookupStatus> callback) {
+        final TxtResolver.Cancellable query = resolver.resolve(fqdn, executor, newResolverCallback(callback));
+        if (callback instanceof InFlightLookup) {
+            ((InFlightLookup) callback).setQuery(query);
+        }
+    }
+
+    /**
+     * Returns the resolver callback ending the lookup the given callback belongs to
+     *
+     * @param callback
+     *            callback passed to {@link #doResolve(String, ThreadPoolExecutor, Consumer)}
+     * @return callback to pass to the resolver
+     */
+    TxtResolver.Callback newResolverCallback(final Consumer<LookupStatus> callback) {
+        return new TxtResolver.Callback() {
+
+            @Override
+            public void onAnswer(final TxtAnswer txtAnswer) {
+                try {
+                    handleAnswer(txtAnswer, callback);
+                } catch (final IOException e) {
+                    handleError(callback, e);
+                    throw new ServiceLocatorException("Invalid TXT record in DNS Response found.", e);
+                } catch (final RuntimeException e) {
+                    handleError(callback, e);
+                    throw e;
+                } finally {
+                    answerCallback(callback);
+                }
+            }
+
+            @Override
+            public void onError(final Exception e) {
+                handleError(callback, e);
+                answerCallback(callback);
+            }
+        };
+    }
+}
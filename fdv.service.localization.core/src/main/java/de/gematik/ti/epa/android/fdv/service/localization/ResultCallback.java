@@ -1,4 +1,4 @@
-/*
+/*
  * Copyright (c) 2020 gematik GmbH
  * 
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -12,32 +12,25 @@
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
  * limitations under the License.
- */
-
-package de.gematik.ti.epa.android.fdv.service.localization;
-
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.function.Consumer;
-
-import org.junit.Assert;
-import org.junit.Test;
-
-import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
-
-public class AbstractServiceLocatorTest {
-
-    @Test
-    public void getLookupStatus() {
-        AbstractServiceLocator asl = new AbstractServiceLocator() {
-
-            @Override
-            protected void doResolve(final String fqdn, final ThreadPoolExecutor executor, final Consumer<LookupStatus> callback) {
-                // Not used
-            }
-        };
-
-        Assert.assertEquals(LookupStatus.NOT_STARTED, asl.getLookupStatus());
-        asl.setLookupStatus(LookupStatus.ERROR);
-        Assert.assertEquals(LookupStatus.ERROR, asl.getLookupStatus());
-    }
-}
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.function.Consumer;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Lookup callback that gets the entries as they were when the lookup ended, instead of reading them when the callback is delivered, e.g.
+ * later on the executor of the caller
+ */
+interface ResultCallback extends Consumer<LookupStatus> {
+
+    /**
+     * Called instead of {@link #accept(Object)} with the result taken when the lookup ended
+     *
+     * @param lookupResult
+     *            status the lookup ended with and the entries served at that moment
+     */
+    void onResult(LookupResult lookupResult);
+}
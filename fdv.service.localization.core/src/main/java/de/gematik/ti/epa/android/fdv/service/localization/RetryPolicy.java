@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=RetryPolicy]
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double jitterFraction;
+
+    /**
+     * Constructor
+     *
+     * @param maxAttempts
+     *            maximum number of queries of one lookup including the first one, at least 1
+     * @param initialBackoffMillis
+     *            delay in milliseconds before the first retry, doubled for every further retry, at least 1
+     * @param maxBackoffMillis
+     *            upper bound of the doubled delay in milliseconds, not less than the initial delay
+     * @param jitterFraction
+     *            maximum relative deviation from the delay, in both directions, to spread the retries of many clients, 0 up to less than 1
+     */
+    public RetryPolicy(final int maxAttempts, final long initialBackoffMillis, final long maxBackoffMillis, final double jitterFraction) {
+        if (maxAttempts < 1 || initialBackoffMillis < 1 || maxBackoffMillis < initialBackoffMillis || !(jitterFraction >= 0 && jitterFraction < 1)) {
+            throw new IllegalArgumentException("Invalid retry policy: maxAttempts=" + maxAttempts + ", initialBackoffMillis=" + initialBackoffMillis
+                    + ", maxBackoffMillis=" + maxBackoffMillis + ", jitterFraction=" + jitterFraction);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.jitterFraction = jitterFraction;
+    }
+
+    /**
+     * Getter for the maximum number of queries of one lookup
+     *
+     * @return maximum number of queries including the first one
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Getter for the delay before the first retry
+     *
+     * @return delay in milliseconds
+     */
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    /**
+     * Getter for the upper bound of the delay between two queries
+     *
+     * @return delay in milliseconds
+     */
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    /**
+     * Getter for the maximum relative deviation of the delay
+     *
+     * @return maximum relative deviation
+     */
+    public double getJitterFraction() {
+        return jitterFraction;
+    }
+
+    /**
+     * Returns the delay before the given retry
+     *
+     * @param retry
+     *            number of the retry, 1 for the second query of a lookup
+     * @return delay in milliseconds, at least 1
+     */
+    long nextBackoff(final int retry) {
+        final int doublings = Math.min(retry - 1, Long.SIZE - 2);
+        final long backoff = initialBackoffMillis > maxBackoffMillis >> doublings ? maxBackoffMillis : initialBackoffMillis << doublings;
+        final double jitter = jitterFraction * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.max(1, (long) (backoff * (1 + jitter)));
+    }
+}
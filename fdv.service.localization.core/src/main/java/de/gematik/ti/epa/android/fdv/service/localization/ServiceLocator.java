@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+import de.gematik.ti.epa.fdv.service.localization.spi.IServiceLocalizer;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=ServiceLocator]
+ */
+public final class ServiceLocator implements IServiceLocalizer {
+
+    private final ServiceLocatorRegistry registry;
+    private volatile String fqdn;
+
+    /**
+     * Constructor
+     */
+    public ServiceLocator() {
+        this(new ServiceLocatorRegistry());
+    }
+
+    /**
+     * Constructor for a locator that shares its resolved entries and lookup threads with other locators of the same registry
+     *
+     * @param registry
+     *            registry holding the entry of the FQDN given to {@link #lookup(String, Consumer)}
+     */
+    public ServiceLocator(final ServiceLocatorRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Prepares the resolver in the background, so the first lookup does not pay for it
+     *
+     * @see ServiceLocatorRegistry#warmUp()
+     */
+    public void warmUp() {
+        registry.warmUp();
+    }
+
+    /**
+     * start a new DNS lookup, e.g. if previous one ended erroneously
+     * 
+     * @param fqdn
+     *            fully qualified domain name
+     * @param callback
+     *            optional Consumer parameter to get callback the lookup status
+     */
+    @Override
+    public void lookup(final String fqdn, final Consumer<LookupStatus> callback) {
+        this.fqdn = fqdn;
+        registry.lookup(fqdn, callback);
+    }
+
+    /**
+     * start a new DNS lookup whose callback is called on the given executor, e.g. the main thread of the app
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param executor
+     *            executor to call the callback on
+     * @param callback
+     *            optional Consumer parameter to get callback the lookup status
+     * @see ServiceLocatorRegistry#lookup(String, Executor, Consumer)
+     */
+    public void lookup(final String fqdn, final Executor executor, final Consumer<LookupStatus> callback) {
+        this.fqdn = fqdn;
+        registry.lookup(fqdn, executor, callback);
+    }
+
+    /**
+     * start a new DNS lookup and return a future of its result, e.g. to chain the lookup with the requests to the endpoints
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @return future completing with the result once the lookup ended
+     * @see ServiceLocatorRegistry#lookupAsync(String)
+     */
+    public CompletableFuture<LookupResult> lookupAsync(final String fqdn) {
+        this.fqdn = fqdn;
+        return registry.lookupAsync(fqdn);
+    }
+
+    /**
+     * start a new DNS lookup and return a future of its result, which completes exceptionally with a {@link TimeoutException} if the lookup
+     * does not end in time
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param timeout
+     *            maximum time to wait for the result
+     * @param unit
+     *            unit of the timeout
+     * @return future completing with the result once the lookup ended
+     * @see ServiceLocatorRegistry#lookupAsync(String, long, TimeUnit)
+     */
+    public CompletableFuture<LookupResult> lookupAsync(final String fqdn, final long timeout, final TimeUnit unit) {
+        this.fqdn = fqdn;
+        return registry.lookupAsync(fqdn, timeout, unit);
+    }
+
+    /**
+     * Cancels the running lookup including the query of the backend, its callbacks get {@link LookupStatus#ERROR} right away
+     *
+     * @return false if no lookup was running
+     * @see ServiceLocatorRegistry#cancel(String)
+     */
+    public boolean cancel() {
+        final String currentFqdn = fqdn;
+        return currentFqdn != null && registry.cancel(currentFqdn);
+    }
+
+    /**
+     * Reports that a request to the endpoint of the given interface failed
+     *
+     * @param serviceInterfaceName
+     *            name of the gateway interface whose endpoint failed
+     * @see ServiceLocatorRegistry#reportEndpointFailure(String, ServiceInterfaceName)
+     */
+    public void reportEndpointFailure(final ServiceInterfaceName serviceInterfaceName) {
+        final String currentFqdn = fqdn;
+        if (currentFqdn != null) {
+            registry.reportEndpointFailure(currentFqdn, serviceInterfaceName);
+        }
+    }
+
+    /**
+     * Reports that a request to the endpoint of the given interface succeeded
+     *
+     * @param serviceInterfaceName
+     *            name of the gateway interface whose endpoint answered
+     * @see ServiceLocatorRegistry#reportEndpointSuccess(String, ServiceInterfaceName)
+     */
+    public void reportEndpointSuccess(final ServiceInterfaceName serviceInterfaceName) {
+        final String currentFqdn = fqdn;
+        if (currentFqdn != null) {
+            registry.reportEndpointSuccess(currentFqdn, serviceInterfaceName);
+        }
+    }
+
+    @Override
+    public URL endpointURLForInterface(final ServiceInterfaceName serviceInterfaceName) {
+        final String currentFqdn = fqdn;
+        return currentFqdn != null ? registry.endpointURLForInterface(currentFqdn, serviceInterfaceName) : null;
+    }
+
+    @Override
+    public LookupStatus getLookupStatus() {
+        final String currentFqdn = fqdn;
+        return currentFqdn != null ? registry.getLookupStatus(currentFqdn) : LookupStatus.NOT_STARTED;
+    }
+
+    @Override
+    public String getHomeCommunityId()  {
+        final String currentFqdn = fqdn;
+        return currentFqdn != null ? registry.getHomeCommunityId(currentFqdn) : null;
+    }
+}
@@ -0,0 +1,688 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=ServiceLocatorRegistry]
+ */
+public final class ServiceLocatorRegistry {
+
+    /**
+     * Time the network events of one switch of networks are coalesced in before the entries are resolved again
+     */
+    static final long NETWORK_SETTLE_MILLIS = 300;
+
+    private final Map<String, AbstractServiceLocator> locators = new ConcurrentHashMap<>();
+    private final Supplier<AbstractServiceLocator> locatorFactory;
+    private final ThreadPoolExecutor executor;
+    private final EndpointCache endpointCache;
+    private final MonotonicClock clock;
+    private volatile RefreshAheadPolicy refreshAheadPolicy;
+    private volatile RetryPolicy retryPolicy;
+    private volatile NegativeCachePolicy negativeCachePolicy;
+    private volatile EndpointFailurePolicy endpointFailurePolicy;
+    private volatile LookupMetricsListener metricsListener;
+    private volatile FlightRecorder flightRecorder = new FlightRecorder(FlightRecorder.DEFAULT_CAPACITY);
+    private volatile Executor callbackExecutor;
+    private volatile long serveStaleMillis;
+    private volatile long maxInFlightAgeMillis = Long.MAX_VALUE;
+    private volatile long lookupTimeoutMillis = Long.MAX_VALUE;
+    private final AtomicBoolean revalidationPending = new AtomicBoolean();
+
+    /**
+     * Constructor for a registry resolving on the process-wide {@link ResolverExecutor}
+     */
+    public ServiceLocatorRegistry() {
+        this(ServiceLocatorRegistry::createPlatformLocator, null);
+    }
+
+    /**
+     * Constructor for a registry resolving on its own executor instead of the process-wide {@link ResolverExecutor}
+     *
+     * @param maxParallelLookups
+     *            maximum number of DNS lookups of this registry running at the same time, further lookups are queued
+     */
+    public ServiceLocatorRegistry(final int maxParallelLookups) {
+        this(ServiceLocatorRegistry::createPlatformLocator,
+                ResolverExecutor.newExecutor(maxParallelLookups, ResolverExecutor.DEFAULT_QUEUE_CAPACITY, ResolverExecutor.DEFAULT_KEEP_ALIVE_SECONDS));
+    }
+
+    /**
+     * Constructor for a registry that keeps its resolved entries in the given file. Entries of a previous process still within their TTL are
+     * served right away, without waiting for a lookup.
+     *
+     * @param cacheFile
+     *            file to restore the entries from and to write them to, e.g. in the cache directory of the app
+     */
+    public ServiceLocatorRegistry(final File cacheFile) {
+        this(ServiceLocatorRegistry::createPlatformLocator, null, new EndpointCache(cacheFile));
+    }
+
+    /**
+     * Constructor for a registry resolving with the given resolver instead of the one of the platform, e.g. the {@link DnsjavaTxtResolver}
+     * on a server
+     *
+     * @param resolver
+     *            resolver of the TXT records of all FQDNs
+     */
+    public ServiceLocatorRegistry(final TxtResolver resolver) {
+        this(() -> new ResolverServiceLocator(resolver), null);
+    }
+
+    ServiceLocatorRegistry(final Supplier<AbstractServiceLocator> locatorFactory, final ThreadPoolExecutor executor) {
+        this(locatorFactory, executor, null);
+    }
+
+    ServiceLocatorRegistry(final Supplier<AbstractServiceLocator> locatorFactory, final ThreadPoolExecutor executor, final EndpointCache endpointCache) {
+        this(locatorFactory, executor, endpointCache, null);
+    }
+
+    ServiceLocatorRegistry(final Supplier<AbstractServiceLocator> locatorFactory, final ThreadPoolExecutor executor, final EndpointCache endpointCache,
+            final MonotonicClock clock) {
+        this.locatorFactory = locatorFactory;
+        this.executor = executor;
+        this.endpointCache = endpointCache;
+        this.clock = clock;
+        if (endpointCache != null) {
+            for (final EndpointTable endpointTable : endpointCache.load(System.currentTimeMillis()).values()) {
+                getOrCreateLocator(endpointTable.getFqdn()).restore(endpointTable);
+            }
+        }
+    }
+
+    /**
+     * Prepares the resolver on a thread of the executor of this registry, so the first lookup does not pay for it, e.g. right after the
+     * registry was created in Application.onCreate. The resolver of the platform is loaded and its backend is set up: on Android the
+     * backend for the API level of the device is selected and only its classes are loaded, for minidns the DNSSEC trust anchors and the DNS
+     * servers of the current network. Without warm-up, this happens on the first lookup.
+     */
+    public void warmUp() {
+        final ThreadPoolExecutor warmUpExecutor = executor != null ? executor : ResolverExecutor.getExecutor();
+        try {
+            warmUpExecutor.execute(() -> locatorFactory.get().warmUp());
+        } catch (final RejectedExecutionException e) {
+            // the first lookup sets the resolver up instead
+        }
+    }
+
+    private static AbstractServiceLocator createPlatformLocator() {
+        return new ResolverServiceLocator(PlatformResolver.INSTANCE);
+    }
+
+    /**
+     * Holds the resolver of the platform: the first {@link TxtResolver} registered as service, e.g. by the Android module, or the
+     * {@link DnsjavaTxtResolver} on a plain JVM
+     */
+    private static final class PlatformResolver {
+
+        private static final TxtResolver INSTANCE = load();
+
+        private PlatformResolver() {
+            // static access only
+        }
+
+        private static TxtResolver load() {
+            for (final TxtResolver resolver : ServiceLoader.load(TxtResolver.class)) {
+                return resolver;
+            }
+            return new DnsjavaTxtResolver();
+        }
+    }
+
+    /**
+     * start a new DNS lookup for one FQDN, e.g. if previous one ended erroneously. Lookups for different FQDNs run in parallel. The callback
+     * is called on the callback executor of this registry.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param callback
+     *            optional Consumer parameter to get callback the lookup status
+     * @see #setCallbackExecutor(Executor)
+     */
+    public void lookup(final String fqdn, final Consumer<LookupStatus> callback) {
+        getOrCreateLocator(fqdn).lookup(fqdn, callback);
+    }
+
+    /**
+     * start a new DNS lookup for one FQDN whose callback is called on the given executor, e.g. the main thread of the app. All callbacks
+     * waiting for the same lookup on the same executor are called one after the other in one task.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param executor
+     *            executor to call the callback on, it is called on the thread delivering the result if the executor rejects it
+     * @param callback
+     *            optional Consumer parameter to get callback the lookup status
+     */
+    public void lookup(final String fqdn, final Executor executor, final Consumer<LookupStatus> callback) {
+        getOrCreateLocator(fqdn).lookup(fqdn, executor, callback);
+    }
+
+    /**
+     * start a new DNS lookup for one FQDN and return a future of its result. The future completes on the callback executor of this registry,
+     * dependent stages doing more than a few operations should be added with an executor of their own.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @return future completing with the result taken when the lookup ended, exceptionally with a {@link TimeoutException} if the lookup
+     *         timeout of the registry cancelled the lookup; cancelling the future does not stop the lookup, the future is only no longer
+     *         waiting for it
+     * @see #setLookupTimeout(long, TimeUnit)
+     */
+    public CompletableFuture<LookupResult> lookupAsync(final String fqdn) {
+        final CompletableFuture<LookupResult> future = new CompletableFuture<>();
+        try {
+            final AbstractServiceLocator locator = getOrCreateLocator(fqdn);
+            final AsyncLookupCallback callback = new AsyncLookupCallback(fqdn, locator, future);
+            locator.lookup(fqdn, callback);
+            // a cancelled or timed out future must not keep its callback registered with the running lookup
+            future.whenComplete((lookupResult, failure) -> {
+                if (failure != null) {
+                    locator.detach(callback);
+                }
+            });
+        } catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Completes the future of {@link #lookupAsync(String)} with the result the locator took when the lookup ended
+     */
+    private static final class AsyncLookupCallback implements ResultCallback, TimeoutCallback {
+
+        private final String fqdn;
+        private final AbstractServiceLocator locator;
+        private final CompletableFuture<LookupResult> future;
+
+        AsyncLookupCallback(final String fqdn, final AbstractServiceLocator locator, final CompletableFuture<LookupResult> future) {
+            this.fqdn = fqdn;
+            this.locator = locator;
+            this.future = future;
+        }
+
+        @Override
+        public void onResult(final LookupResult lookupResult) {
+            future.complete(lookupResult);
+        }
+
+        @Override
+        public void accept(final LookupStatus lookupStatus) {
+            // only if the locator delivered the status without a result
+            future.complete(locator.getLookupResult(fqdn, lookupStatus));
+        }
+
+        @Override
+        public void onTimeout() {
+            future.completeExceptionally(new TimeoutException("Lookup of " + fqdn + " was cancelled at the lookup timeout"));
+        }
+    }
+
+    /**
+     * start a new DNS lookup for one FQDN and return a future of its result, which completes exceptionally with a
+     * {@link TimeoutException} if the lookup does not end in time. The lookup itself is not cancelled at this timeout, it still updates the
+     * entry once it ends; the lookup timeout of the registry cancels it.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param timeout
+     *            maximum time to wait for the result
+     * @param unit
+     *            unit of the timeout
+     * @return future completing with the result once the lookup ended
+     * @see #lookupAsync(String)
+     * @see #setLookupTimeout(long, TimeUnit)
+     */
+    public CompletableFuture<LookupResult> lookupAsync(final String fqdn, final long timeout, final TimeUnit unit) {
+        final CompletableFuture<LookupResult> future = lookupAsync(fqdn);
+        if (!future.isDone()) {
+            final ScheduledFuture<?> timeoutTask = ResolverExecutor.getScheduler()
+                    .schedule(() -> future.completeExceptionally(new TimeoutException("Lookup of " + fqdn + " did not end within " + timeout + " " + unit)),
+                            timeout, unit);
+            future.whenComplete((lookupResult, failure) -> timeoutTask.cancel(false));
+        }
+        return future;
+    }
+
+    /**
+     * start a new DNS lookup for each of the given FQDNs
+     *
+     * @param fqdns
+     *            fully qualified domain names
+     * @param callback
+     *            optional BiConsumer parameter to get callback the FQDN and its lookup status
+     */
+    public void lookupAll(final Collection<String> fqdns, final BiConsumer<String, LookupStatus> callback) {
+        for (final String fqdn : fqdns) {
+            lookup(fqdn, callback != null ? lookupStatus -> callback.accept(fqdn, lookupStatus) : null);
+        }
+    }
+
+    /**
+     * After successful lookup, it returns endpointURL of the given FQDN for a given interface name
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param serviceInterfaceName
+     *            name of the gateway interface where to get the URL for
+     * @return URL of given interface name or null if the FQDN has no valid entry
+     */
+    public URL endpointURLForInterface(final String fqdn, final ServiceInterfaceName serviceInterfaceName) {
+        final AbstractServiceLocator locator = locators.get(toKey(fqdn));
+        if (locator != null) {
+            return locator.endpointURLForInterface(serviceInterfaceName);
+        }
+        final LookupMetricsListener listener = metricsListener;
+        if (listener != null) {
+            listener.onEndpointRead(serviceInterfaceName, LookupMetricsListener.EndpointRead.MISS);
+        }
+        return null;
+    }
+
+    /**
+     * Returns home community of the given FQDN
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @return home community ID or null if the FQDN has no valid entry
+     */
+    public String getHomeCommunityId(final String fqdn) {
+        final AbstractServiceLocator locator = locators.get(toKey(fqdn));
+        return locator != null ? locator.getHomeCommunityId() : null;
+    }
+
+    /**
+     * Returns the status of service lookup in DNS for the given FQDN
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @return status of service lookup in DNS, {@link LookupStatus#NOT_STARTED} for unknown FQDNs
+     */
+    public LookupStatus getLookupStatus(final String fqdn) {
+        final AbstractServiceLocator locator = locators.get(toKey(fqdn));
+        return locator != null ? locator.getLookupStatus() : LookupStatus.NOT_STARTED;
+    }
+
+    /**
+     * Subscribes to the changes of the gateway module paths of the given FQDN, the listener is called on the callback executor of this
+     * registry
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param listener
+     *            listener of the updates
+     * @return subscription to cancel
+     * @see #subscribe(String, Executor, Consumer)
+     */
+    public GatewayTableSubscription subscribe(final String fqdn, final Consumer<GatewayTableUpdate> listener) {
+        return getOrCreateLocator(fqdn).subscribe(listener);
+    }
+
+    /**
+     * Subscribes to the changes of the gateway module paths of the given FQDN, e.g. to rebuild a connection pool only when DNS returned other
+     * paths. The listener gets the entry right away if it was resolved or restored before, and afterwards every table of a lookup or refresh
+     * whose paths differ from the ones it got last, together with the keys that were added, removed or changed. Refreshes returning the same
+     * paths publish nothing. A slow listener does not hold back lookups, it gets only the latest table once it returned. The subscription
+     * ends with {@link #remove(String)}.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param executor
+     *            executor to call the listener on
+     * @param listener
+     *            listener of the updates
+     * @return subscription to cancel
+     */
+    public GatewayTableSubscription subscribe(final String fqdn, final Executor executor, final Consumer<GatewayTableUpdate> listener) {
+        return getOrCreateLocator(fqdn).subscribe(executor, listener);
+    }
+
+    /**
+     * Removes the entry of the given FQDN, a running lookup still completes but its result is no longer served
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     */
+    public void remove(final String fqdn) {
+        final AbstractServiceLocator locator = locators.remove(toKey(fqdn));
+        if (locator != null) {
+            locator.setRefreshAheadPolicy(null);
+            locator.setEndpointTableListener(null);
+            locator.cancelSubscriptions();
+            if (endpointCache != null) {
+                endpointCache.update(fqdn, EndpointTable.EMPTY, getWriteExecutor());
+            }
+        }
+    }
+
+    /**
+     * Enables or disables refreshing the TXT records of all FQDNs in the background before they expire, so endpoint queries keep getting
+     * valid URLs without a new lookup
+     *
+     * @param refreshAheadPolicy
+     *            when to refresh after a successful lookup, null to disable refreshes
+     */
+    public void setRefreshAheadPolicy(final RefreshAheadPolicy refreshAheadPolicy) {
+        this.refreshAheadPolicy = refreshAheadPolicy;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setRefreshAheadPolicy(refreshAheadPolicy);
+        }
+    }
+
+    /**
+     * Enables or disables sending the query of a failed lookup again with exponential backoff. The callbacks of the lookup wait for the
+     * retries and get {@link LookupStatus#ERROR} only once the last attempt failed. A lookup timeout ends the retries as well.
+     *
+     * @param retryPolicy
+     *            when to retry a lookup ending with {@link LookupStatus#ERROR}, null to end it right away
+     */
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setRetryPolicy(retryPolicy);
+        }
+    }
+
+    /**
+     * Enables or disables caching failed and empty lookups. While the negative result of an FQDN is cached, further lookups of it end right
+     * away with the same status instead of sending a query.
+     *
+     * @param negativeCachePolicy
+     *            how long lookups ending with {@link LookupStatus#ERROR} or {@link LookupStatus#MISSING_TXT_RECORD} are cached, null to cache
+     *            none
+     */
+    public void setNegativeCachePolicy(final NegativeCachePolicy negativeCachePolicy) {
+        this.negativeCachePolicy = negativeCachePolicy;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setNegativeCachePolicy(negativeCachePolicy);
+        }
+    }
+
+    /**
+     * Enables or disables resolving an FQDN again when requests to its endpoints fail, see
+     * {@link #reportEndpointFailure(String, ServiceInterfaceName)}
+     *
+     * @param endpointFailurePolicy
+     *            how many failures in a row start a lookup and how often, null to ignore reported failures
+     */
+    public void setEndpointFailurePolicy(final EndpointFailurePolicy endpointFailurePolicy) {
+        this.endpointFailurePolicy = endpointFailurePolicy;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setEndpointFailurePolicy(endpointFailurePolicy);
+        }
+    }
+
+    /**
+     * Reports that a request to the endpoint of the given interface failed, e.g. with a connection error or 404 after the gateway moved. Once
+     * the failures in a row reach the threshold of the {@link EndpointFailurePolicy}, the FQDN is resolved again in the background while
+     * its entries are still served. A burst of failures sends one query.
+     *
+     * @param fqdn
+     *            fully qualified domain name the endpoint URL was read for
+     * @param serviceInterfaceName
+     *            name of the gateway interface whose endpoint failed
+     */
+    public void reportEndpointFailure(final String fqdn, final ServiceInterfaceName serviceInterfaceName) {
+        final AbstractServiceLocator locator = locators.get(toKey(fqdn));
+        if (locator != null) {
+            locator.reportEndpointFailure(serviceInterfaceName);
+        }
+    }
+
+    /**
+     * Reports that a request to the endpoint of the given interface succeeded, which ends its failures in a row
+     *
+     * @param fqdn
+     *            fully qualified domain name the endpoint URL was read for
+     * @param serviceInterfaceName
+     *            name of the gateway interface whose endpoint answered
+     */
+    public void reportEndpointSuccess(final String fqdn, final ServiceInterfaceName serviceInterfaceName) {
+        final AbstractServiceLocator locator = locators.get(toKey(fqdn));
+        if (locator != null) {
+            locator.reportEndpointSuccess(serviceInterfaceName);
+        }
+    }
+
+    /**
+     * Sets the listener receiving the metrics of all lookups and endpoint reads, e.g. a {@link LookupMetrics}. It is called on the resolver
+     * and calling threads, so it must be thread-safe, fast and must not throw. Without listener nothing is measured.
+     *
+     * @param metricsListener
+     *            listener of the metrics, null to remove it
+     */
+    public void setMetricsListener(final LookupMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setMetricsListener(metricsListener);
+        }
+    }
+
+    /**
+     * Sets the recorder keeping the last events of the lookups of all FQDNs. By default a recorder of {@link FlightRecorder#DEFAULT_CAPACITY}
+     * events is set.
+     *
+     * @param flightRecorder
+     *            recorder, null to record nothing
+     */
+    public void setFlightRecorder(final FlightRecorder flightRecorder) {
+        this.flightRecorder = flightRecorder;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setFlightRecorder(flightRecorder);
+        }
+    }
+
+    /**
+     * Sets the executor the callbacks of lookups without executor of their own are called on, and the futures of
+     * {@link #lookupAsync(String)} are completed on. By default this is a single thread shared by all registries, so a slow callback holds
+     * back the other callbacks, but never a DNS lookup. Callbacks are never called on a resolver thread unless the executor runs them on
+     * the calling thread.
+     *
+     * @param callbackExecutor
+     *            executor owned by the caller, it is never shut down by this registry; null for the shared callback thread
+     */
+    public void setCallbackExecutor(final Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setCallbackExecutor(callbackExecutor);
+        }
+    }
+
+    /**
+     * Returns the recorder keeping the last events of the lookups of all FQDNs, e.g. to attach its {@link FlightRecorder#dump()} to a bug
+     * report
+     *
+     * @return recorder, null if recording is disabled
+     */
+    public FlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    /**
+     * Sets how long the last successfully resolved table of each FQDN is still served after its TTL expired while a new lookup is running
+     * or after it failed. Lookups ending with {@link LookupStatus#MISSING_TXT_RECORD} drop the table immediately.
+     *
+     * @param serveStale
+     *            serve-stale window, 0 to serve nothing after the TTL
+     * @param unit
+     *            unit of the serve-stale window
+     */
+    public void setServeStale(final long serveStale, final TimeUnit unit) {
+        final long millis = unit.toMillis(serveStale);
+        if (millis < 0) {
+            throw new IllegalArgumentException("serveStale must not be negative but was " + serveStale);
+        }
+        serveStaleMillis = millis;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setServeStaleMillis(millis);
+        }
+    }
+
+    /**
+     * Sets the age after which a running lookup of an FQDN is no longer joined by further lookups, but a new query is sent whose result is
+     * delivered to the callbacks of both
+     *
+     * @param maxInFlightAge
+     *            maximum age of a running lookup to join
+     * @param unit
+     *            unit of the maximum age
+     */
+    public void setMaxInFlightAge(final long maxInFlightAge, final TimeUnit unit) {
+        final long millis = unit.toMillis(maxInFlightAge);
+        if (millis < 0) {
+            throw new IllegalArgumentException("maxInFlightAge must not be negative but was " + maxInFlightAge);
+        }
+        maxInFlightAgeMillis = millis;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setMaxInFlightAgeMillis(millis);
+        }
+    }
+
+    /**
+     * Sets the time after which a lookup is cancelled, including the query of the backend, and ends with {@link LookupStatus#ERROR}. Futures
+     * of {@link #lookupAsync(String)} complete exceptionally with a {@link TimeoutException} instead. Without a lookup
+     * timeout, a backend that does not answer keeps the lookup running and every further lookup of the FQDN joins it within the maximum
+     * in-flight age.
+     *
+     * @param lookupTimeout
+     *            deadline of each lookup
+     * @param unit
+     *            unit of the deadline
+     */
+    public void setLookupTimeout(final long lookupTimeout, final TimeUnit unit) {
+        final long millis = unit.toMillis(lookupTimeout);
+        if (millis <= 0) {
+            throw new IllegalArgumentException("lookupTimeout must be positive but was " + lookupTimeout);
+        }
+        lookupTimeoutMillis = millis;
+        for (final AbstractServiceLocator locator : locators.values()) {
+            locator.setLookupTimeoutMillis(millis);
+        }
+    }
+
+    /**
+     * Cancels the running lookup of the given FQDN including the query of the backend, its callbacks get {@link LookupStatus#ERROR} right
+     * away. The entries resolved before are still served within the serve-stale window.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @return false if no lookup of the FQDN was running
+     */
+    public boolean cancel(final String fqdn) {
+        final AbstractServiceLocator locator = locators.get(toKey(fqdn));
+        return locator != null && locator.cancel();
+    }
+
+    /**
+     * Marks the entries of all FQDNs as suspect after the device switched networks, e.g. from Wi-Fi to cellular or into a VPN, as they were
+     * resolved by the name server of the previous network. All events within {@link #NETWORK_SETTLE_MILLIS} are coalesced into one
+     * background lookup per FQDN on the new network. The entries are still served until it ends, a cached negative result is dropped and a
+     * lookup still running on the previous network is superseded. The cache of the resolver is flushed first, so the lookups reach the name
+     * servers of the new network.
+     */
+    public void networkChanged() {
+        if (!revalidationPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ResolverExecutor.getScheduler().schedule(() -> {
+                revalidationPending.set(false);
+                // the caches of the backends hold answers of the previous network, all of them are flushed before the first query
+                for (final AbstractServiceLocator locator : locators.values()) {
+                    locator.flushResolverCache();
+                }
+                for (final AbstractServiceLocator locator : locators.values()) {
+                    locator.revalidate();
+                }
+            }, NETWORK_SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            revalidationPending.set(false);
+        }
+    }
+
+    /**
+     * Returns all FQDNs with an entry in this registry, in lower case
+     *
+     * @return unmodifiable view of the registered FQDNs
+     */
+    public Set<String> getFqdns() {
+        return Collections.unmodifiableSet(locators.keySet());
+    }
+
+    private AbstractServiceLocator getOrCreateLocator(final String fqdn) {
+        return locators.computeIfAbsent(toKey(fqdn), key -> {
+            final AbstractServiceLocator locator = locatorFactory.get();
+            if (clock != null) {
+                locator.setClock(clock);
+            }
+            if (executor != null) {
+                locator.setExecutor(executor);
+            }
+            locator.setRefreshAheadPolicy(refreshAheadPolicy);
+            locator.setRetryPolicy(retryPolicy);
+            locator.setNegativeCachePolicy(negativeCachePolicy);
+            locator.setEndpointFailurePolicy(endpointFailurePolicy);
+            locator.setMetricsListener(metricsListener);
+            locator.setFlightRecorder(flightRecorder);
+            if (callbackExecutor != null) {
+                locator.setCallbackExecutor(callbackExecutor);
+            }
+            locator.setServeStaleMillis(serveStaleMillis);
+            locator.setMaxInFlightAgeMillis(maxInFlightAgeMillis);
+            if (lookupTimeoutMillis != Long.MAX_VALUE) {
+                locator.setLookupTimeoutMillis(lookupTimeoutMillis);
+            }
+            if (endpointCache != null) {
+                locator.setEndpointTableListener((resolvedFqdn, endpointTable) -> endpointCache.update(key, endpointTable, getWriteExecutor()));
+            }
+            return locator;
+        });
+    }
+
+    private ThreadPoolExecutor getWriteExecutor() {
+        return executor != null ? executor : ResolverExecutor.getExecutor();
+    }
+
+    private static String toKey(final String fqdn) {
+        return fqdn.toLowerCase(Locale.ROOT);
+    }
+}
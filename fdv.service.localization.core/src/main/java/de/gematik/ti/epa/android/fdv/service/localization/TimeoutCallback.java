@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.function.Consumer;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Lookup callback that is told when the lookup ended at its deadline instead of getting {@link LookupStatus#ERROR}, as {@link LookupStatus}
+ * has no status of its own for it
+ */
+interface TimeoutCallback extends Consumer<LookupStatus> {
+
+    /**
+     * Called instead of {@link #accept(Object)} if the lookup was cancelled at its deadline
+     */
+    void onTimeout();
+}
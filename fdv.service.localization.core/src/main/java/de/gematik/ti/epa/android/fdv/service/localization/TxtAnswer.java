@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Type;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=TxtAnswer]
+ */
+public final class TxtAnswer {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private byte[][] buffers = new byte[INITIAL_CAPACITY][];
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private long[] ttls = new long[INITIAL_CAPACITY];
+    private int size;
+    private long negativeTtl = -1;
+
+    /**
+     * Constructor for an answer without records
+     */
+    public TxtAnswer() {
+        // Nothing
+    }
+
+    /**
+     * Returns the answer holding the TXT records in the answer section of a DNS message, referencing the message buffer
+     *
+     * @param message
+     *            DNS message in wire format, it must not change afterwards
+     * @return new answer
+     * @throws IOException
+     *             if the message is truncated or malformed
+     */
+    public static TxtAnswer fromMessage(final byte[] message) throws IOException {
+        return TxtRecordParser.readAnswer(message);
+    }
+
+    /**
+     * Returns the answer holding the TXT records of the given dnsjava records
+     *
+     * @param records
+     *            records of the answer section, records of other types are skipped
+     * @return new answer
+     */
+    static TxtAnswer of(final Record[] records) {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        for (final Record record : records) {
+            if (record.getType() == Type.TXT) {
+                final byte[] rdata = record.rdataToWireCanonical();
+                txtAnswer.add(rdata, 0, rdata.length, record.getTTL());
+            }
+        }
+        return txtAnswer;
+    }
+
+    /**
+     * Returns the answer holding the TXT records of the given dnsjava records and the negative caching TTL of the SOA record in the
+     * authority section
+     *
+     * @param records
+     *            records of the answer section, records of other types are skipped
+     * @param authority
+     *            records of the authority section
+     * @return new answer
+     */
+    static TxtAnswer of(final Record[] records, final Record[] authority) {
+        final TxtAnswer txtAnswer = of(records);
+        for (final Record record : authority) {
+            if (record instanceof SOARecord) {
+                txtAnswer.setNegativeTtl(Math.min(record.getTTL(), ((SOARecord) record).getMinimum()));
+            }
+        }
+        return txtAnswer;
+    }
+
+    /**
+     * Adds the record data of one TXT record, the buffer is referenced and must not change afterwards
+     *
+     * @param buffer
+     *            buffer holding the record data
+     * @param offset
+     *            start of the record data in the buffer
+     * @param length
+     *            length of the record data
+     * @param ttl
+     *            time to live of the record in seconds
+     */
+    public void add(final byte[] buffer, final int offset, final int length, final long ttl) {
+        if (size == buffers.length) {
+            buffers = Arrays.copyOf(buffers, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+            ttls = Arrays.copyOf(ttls, size * 2);
+        }
+        buffers[size] = buffer;
+        offsets[size] = offset;
+        lengths[size] = length;
+        ttls[size] = ttl;
+        size++;
+    }
+
+    /**
+     * Returns the number of TXT records
+     *
+     * @return number of records added
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the TTL of the given record
+     *
+     * @param index
+     *            index of the record in the order it was added
+     * @return time to live of the record in seconds
+     */
+    public long getTtl(final int index) {
+        return ttls[index];
+    }
+
+    /**
+     * Returns the size of the record data of all records
+     *
+     * @return number of bytes
+     */
+    int getRdataLength() {
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            length += lengths[i];
+        }
+        return length;
+    }
+
+    /**
+     * Returns how long the absence of TXT records may be cached, which RFC 2308 defines as the smaller of the TTL of the SOA record in the
+     * authority section of a negative answer and its MINIMUM field
+     *
+     * @return negative caching TTL in seconds, -1 if the answer has no SOA record
+     */
+    public long getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    /**
+     * Sets how long the absence of TXT records may be cached
+     *
+     * @param negativeTtl
+     *            negative caching TTL in seconds, see {@link #getNegativeTtl()}
+     */
+    public void setNegativeTtl(final long negativeTtl) {
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * Checks that the character-strings of all records can be parsed, without creating the gateway module paths
+     *
+     * @throws IOException
+     *             if a record is malformed
+     */
+    void validate() throws IOException {
+        for (int i = 0; i < size; i++) {
+            TxtRecordParser.parseRdata(buffers[i], offsets[i], lengths[i], ttls[i], 0, null);
+        }
+    }
+
+    /**
+     * Parses the character-strings of all records
+     *
+     * @return gateway module paths by module name, empty if no record has an entry
+     * @throws IOException
+     *             if a record is malformed
+     */
+    Map<String, GatewayModulePathType> toGatewayModulePaths() throws IOException {
+        return toGatewayModulePaths(PlatformClock.INSTANCE.millis());
+    }
+
+    /**
+     * Parses the character-strings of all records received at the given time
+     *
+     * @param now
+     *            time in milliseconds of the {@link MonotonicClock} the TTLs start at
+     * @return gateway module paths by module name, empty if no record has an entry
+     * @throws IOException
+     *             if a record is malformed
+     */
+    Map<String, GatewayModulePathType> toGatewayModulePaths(final long now) throws IOException {
+        final Map<String, GatewayModulePathType> dnsTxtRecordValues = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            TxtRecordParser.parseRdata(buffers[i], offsets[i], lengths[i], ttls[i], now, dnsTxtRecordValues);
+        }
+        return dnsTxtRecordValues;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * Reads the "key=value" character-strings of TXT records straight from their wire format into gateway module paths. Only the keys and values
+ * themselves are allocated, so values may contain spaces or quotes.
+ */
+final class TxtRecordParser {
+
+    static final int TYPE_TXT = 16;
+    static final int TYPE_SOA = 6;
+
+    private static final int HEADER_LENGTH = 12;
+    private static final int QUESTION_TYPE_CLASS_LENGTH = 4;
+    private static final int RECORD_FIXED_LENGTH = 10;
+    private static final int SOA_MINIMUM_LENGTH = 4;
+    private static final int COMPRESSION_MASK = 0xC0;
+    private static final byte[] TXT_VERSION_KEY = "txtvers".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TXT_VERSION = "1".getBytes(StandardCharsets.US_ASCII);
+
+    private TxtRecordParser() {
+        // static access only
+    }
+
+    /**
+     * Parses the TXT records in the answer section of a DNS message
+     *
+     * @param message
+     *            DNS message in wire format
+     * @return gateway module paths by module name, empty if the answer has no TXT record with entries
+     * @throws IOException
+     *             if the message is truncated or malformed
+     */
+    static Map<String, GatewayModulePathType> parseMessage(final byte[] message) throws IOException {
+        return readAnswer(message).toGatewayModulePaths();
+    }
+
+    /**
+     * Collects the TXT records in the answer section of a DNS message without copying their data. If there is none, the negative caching TTL
+     * is taken from the SOA record in the authority section.
+     *
+     * @param message
+     *            DNS message in wire format
+     * @return TXT records of the answer section
+     * @throws IOException
+     *             if the message is truncated or malformed
+     */
+    static TxtAnswer readAnswer(final byte[] message) throws IOException {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        if (message.length < HEADER_LENGTH) {
+            throw new IOException("Truncated DNS message of " + message.length + " bytes");
+        }
+        final int questionCount = readUnsignedShort(message, 4);
+        final int answerCount = readUnsignedShort(message, 6);
+        final int authorityCount = readUnsignedShort(message, 8);
+        int position = HEADER_LENGTH;
+        for (int i = 0; i < questionCount; i++) {
+            position = skipName(message, position) + QUESTION_TYPE_CLASS_LENGTH;
+        }
+        for (int i = 0; i < answerCount; i++) {
+            position = skipName(message, position);
+            checkAvailable(message, position, RECORD_FIXED_LENGTH);
+            final int type = readUnsignedShort(message, position);
+            final long ttl = readUnsignedInt(message, position + 4);
+            final int rdataLength = readUnsignedShort(message, position + 8);
+            position += RECORD_FIXED_LENGTH;
+            checkAvailable(message, position, rdataLength);
+            if (type == TYPE_TXT) {
+                txtAnswer.add(message, position, rdataLength, ttl);
+            }
+            position += rdataLength;
+        }
+        if (txtAnswer.size() == 0) {
+            readNegativeTtl(message, position, authorityCount, txtAnswer);
+        }
+        return txtAnswer;
+    }
+
+    private static void readNegativeTtl(final byte[] message, final int authorityStart, final int authorityCount, final TxtAnswer txtAnswer)
+            throws IOException {
+        int position = authorityStart;
+        for (int i = 0; i < authorityCount; i++) {
+            position = skipName(message, position);
+            checkAvailable(message, position, RECORD_FIXED_LENGTH);
+            final int type = readUnsignedShort(message, position);
+            final long ttl = readUnsignedInt(message, position + 4);
+            final int rdataLength = readUnsignedShort(message, position + 8);
+            position += RECORD_FIXED_LENGTH;
+            checkAvailable(message, position, rdataLength);
+            if (type == TYPE_SOA && rdataLength >= SOA_MINIMUM_LENGTH) {
+                // MINIMUM is the last field of the SOA record data
+                txtAnswer.setNegativeTtl(Math.min(ttl, readUnsignedInt(message, position + rdataLength - SOA_MINIMUM_LENGTH)));
+            }
+            position += rdataLength;
+        }
+    }
+
+    /**
+     * Parses the character-strings of one TXT record
+     *
+     * @param rdata
+     *            buffer holding the record data
+     * @param offset
+     *            start of the record data in the buffer
+     * @param length
+     *            length of the record data
+     * @param ttl
+     *            time to live of the record in seconds
+     * @param dnsTxtRecordValues
+     *            map to put the gateway module paths into
+     * @throws IOException
+     *             if a character-string exceeds the record data
+     */
+    static void parseRdata(final byte[] rdata, final int offset, final int length, final long ttl,
+            final Map<String, GatewayModulePathType> dnsTxtRecordValues) throws IOException {
+        parseRdata(rdata, offset, length, ttl, PlatformClock.INSTANCE.millis(), dnsTxtRecordValues);
+    }
+
+    /**
+     * Parses the character-strings of one TXT record received at the given time
+     *
+     * @param rdata
+     *            buffer holding the record data
+     * @param offset
+     *            start of the record data in the buffer
+     * @param length
+     *            length of the record data
+     * @param ttl
+     *            time to live of the record in seconds
+     * @param now
+     *            time in milliseconds of the {@link MonotonicClock} the TTL starts at
+     * @param dnsTxtRecordValues
+     *            map to put the gateway module paths into, null to only check the record
+     * @throws IOException
+     *             if a character-string exceeds the record data
+     */
+    static void parseRdata(final byte[] rdata, final int offset, final int length, final long ttl, final long now,
+            final Map<String, GatewayModulePathType> dnsTxtRecordValues) throws IOException {
+        final int end = offset + length;
+        int position = offset;
+        while (position < end) {
+            final int stringLength = rdata[position] & 0xFF;
+            position++;
+            if (position + stringLength > end) {
+                throw new IOException("TXT character-string exceeds its record");
+            }
+            parseEntry(rdata, position, position + stringLength, ttl, now, dnsTxtRecordValues);
+            position += stringLength;
+        }
+    }
+
+    private static void parseEntry(final byte[] buffer, final int start, final int end, final long ttl, final long now,
+            final Map<String, GatewayModulePathType> dnsTxtRecordValues) {
+        int keyStart = start;
+        while (keyStart < end && isWhitespace(buffer[keyStart])) {
+            keyStart++;
+        }
+        int valueEnd = end;
+        while (valueEnd > keyStart && isWhitespace(buffer[valueEnd - 1])) {
+            valueEnd--;
+        }
+        int separator = keyStart;
+        while (separator < valueEnd && buffer[separator] != '=') {
+            separator++;
+        }
+        if (separator == valueEnd) {
+            return;
+        }
+        if (regionEquals(buffer, keyStart, separator, TXT_VERSION_KEY)) {
+            if (!regionEquals(buffer, separator + 1, valueEnd, TXT_VERSION)) {
+                throw new ServiceLocatorException("Wrong txtVersion in DNS Response found.");
+            }
+        } else if (dnsTxtRecordValues != null) {
+            final String key = new String(buffer, keyStart, separator - keyStart, StandardCharsets.US_ASCII);
+            final String value = new String(buffer, separator + 1, valueEnd - separator - 1, StandardCharsets.UTF_8);
+            dnsTxtRecordValues.put(key, new GatewayModulePathType(value, ttl, now));
+        }
+    }
+
+    private static boolean regionEquals(final byte[] buffer, final int start, final int end, final byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(final byte value) {
+        return value == ' ' || value == '\t' || value == '\r' || value == '\n';
+    }
+
+    private static int skipName(final byte[] message, final int offset) throws IOException {
+        int position = offset;
+        while (true) {
+            checkAvailable(message, position, 1);
+            final int labelLength = message[position] & 0xFF;
+            if (labelLength == 0) {
+                return position + 1;
+            }
+            if ((labelLength & COMPRESSION_MASK) == COMPRESSION_MASK) {
+                checkAvailable(message, position, 2);
+                return position + 2;
+            }
+            position += labelLength + 1;
+        }
+    }
+
+    private static void checkAvailable(final byte[] message, final int position, final int length) throws IOException {
+        if (position + length > message.length) {
+            throw new IOException("Truncated DNS message at offset " + position);
+        }
+    }
+
+    private static int readUnsignedShort(final byte[] message, final int position) {
+        return (message[position] & 0xFF) << 8 | message[position + 1] & 0xFF;
+    }
+
+    private static long readUnsignedInt(final byte[] message, final int position) {
+        return (long) readUnsignedShort(message, position) << 16 | readUnsignedShort(message, position + 2);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.Executor;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=TxtResolver]
+ */
+public interface TxtResolver {
+
+    /**
+     * Resolves the TXT records of the given FQDN. Exactly one method of the callback must be called, on a thread of the given executor or on
+     * a thread of the resolver itself, never on the calling thread.
+     *
+     * @param fqdn
+     *            fully qualified domain name
+     * @param executor
+     *            executor to resolve or to deliver the answer on
+     * @param callback
+     *            callback receiving the answer or the error
+     * @return handle to cancel the query, {@link Cancellable#NONE} if the resolver cannot cancel it
+     */
+    Cancellable resolve(String fqdn, Executor executor, Callback callback);
+
+    /**
+     * Returns the name of this resolver, the backend the {@link LookupMetricsListener} reports the latency of lookups for
+     *
+     * @return name of the resolver, its simple class name unless overridden
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Prepares this resolver ahead of its first query, e.g. loads its classes or trust anchors. Called on a background thread, resolvers
+     * which need no setup do nothing.
+     */
+    default void warmUp() {
+        // Nothing
+    }
+
+    /**
+     * Drops the answers and other records this resolver cached, so the next queries reach the name servers, e.g. after the device switched
+     * networks. Resolvers without cache do nothing.
+     */
+    default void flushCache() {
+        // Nothing
+    }
+
+    /**
+     * Handle of a query started by {@link TxtResolver#resolve(String, Executor, Callback)}
+     */
+    interface Cancellable {
+
+        /**
+         * Handle of a query that cannot be cancelled
+         */
+        Cancellable NONE = () -> {
+            // Nothing
+        };
+
+        /**
+         * Stops the query as far as the resolver can. The callback is not called any more, unless its outcome is delivered at the same time.
+         */
+        void cancel();
+    }
+
+    /**
+     * Receives the outcome of {@link TxtResolver#resolve(String, Executor, Callback)}
+     */
+    interface Callback {
+
+        /**
+         * Called with the TXT records of the answer, an answer without TXT records is not an error
+         *
+         * @param txtAnswer
+         *            TXT records of the answer section
+         */
+        void onAnswer(TxtAnswer txtAnswer);
+
+        /**
+         * Called if the FQDN could not be resolved, e.g. on a network error or an error response
+         *
+         * @param e
+         *            cause of the error
+         */
+        void onError(Exception e);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xbill.DNS.Record;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Stress test of concurrent reads of {@link AbstractServiceLocator} during repeated lookups
+ */
+public class AbstractServiceLocatorConcurrencyTest extends AbstractServiceLocatorTestTest {
+
+    private static final String RECORD_TXT_MOVED = RECORD_TXT.replace("/docv", "/docv2").replace("3.1.91", "3.1.92");
+    private static final int READERS = 4;
+    private static final int LOOKUPS = 20_000;
+
+    @Test
+    public void readsDuringRepeatedLookups() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        final Record[] records = ControlledServiceLocator.records(RECORD_TXT, 0x20000);
+        final Record[] recordsMoved = ControlledServiceLocator.records(RECORD_TXT_MOVED, 0x20000);
+        locator.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+        locator.answer(records);
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(READERS);
+        final ExecutorService readers = Executors.newFixedThreadPool(READERS);
+        final List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            results.add(readers.submit(() -> read(locator, done, started)));
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            locator.lookup(FQDN, lookupStatus -> {
+                // Not used
+            });
+            if (i % 10 == 0) {
+                locator.fail();
+            } else {
+                locator.answer(i % 2 == 0 ? records : recordsMoved);
+            }
+        }
+        done.set(true);
+
+        for (final Future<Long> result : results) {
+            Assert.assertTrue(result.get(30, TimeUnit.SECONDS) > 0);
+        }
+        readers.shutdown();
+    }
+
+    private static long read(final ControlledServiceLocator locator, final AtomicBoolean done, final CountDownLatch started) {
+        final ServiceInterfaceName[] serviceInterfaceNames = ServiceInterfaceName.values();
+        long reads = 0;
+        started.countDown();
+        while (!done.get()) {
+            for (final ServiceInterfaceName serviceInterfaceName : serviceInterfaceNames) {
+                final URL url = locator.endpointURLForInterface(serviceInterfaceName);
+                Assert.assertNotNull("no URL for " + serviceInterfaceName + " while " + locator.getLookupStatus(), url);
+                Assert.assertTrue(url.toString().startsWith("https://My.test.fqdn:443/"));
+            }
+            final String homeCommunityId = locator.getHomeCommunityId();
+            Assert.assertTrue("1.2.276.0.76.3.1.91".equals(homeCommunityId) || "1.2.276.0.76.3.1.92".equals(homeCommunityId));
+            Assert.assertNotEquals(LookupStatus.NOT_STARTED, locator.getLookupStatus());
+            reads++;
+        }
+        return reads;
+    }
+
+    @Test
+    public void concurrentLookupsStartOneResolution() throws Exception {
+        final int[] resolutions = new int[1];
+        final AbstractServiceLocator locator = new AbstractServiceLocator() {
+            @Override
+            protected void doResolve(final String fqdn, final ThreadPoolExecutor executor, final Consumer<LookupStatus> callback) {
+                synchronized (resolutions) {
+                    resolutions[0]++;
+                }
+            }
+        };
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(READERS);
+        for (int i = 0; i < READERS; i++) {
+            callers.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                locator.lookup(FQDN, lookupStatus -> {
+                    // Not used
+                });
+            });
+        }
+        start.countDown();
+        callers.shutdown();
+        Assert.assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(1, resolutions[0]);
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, locator.getLookupStatus());
+    }
+}
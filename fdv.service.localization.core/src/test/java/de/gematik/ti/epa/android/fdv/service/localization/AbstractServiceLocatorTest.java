@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xbill.DNS.Record;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+public class AbstractServiceLocatorTest extends AbstractServiceLocatorTestTest {
+
+    @Test
+    public void getLookupStatus() {
+        AbstractServiceLocator asl = new AbstractServiceLocator() {
+
+            @Override
+            protected void doResolve(final String fqdn, final ThreadPoolExecutor executor, final Consumer<LookupStatus> callback) {
+                // Not used
+            }
+        };
+
+        Assert.assertEquals(LookupStatus.NOT_STARTED, asl.getLookupStatus());
+        asl.setLookupStatus(LookupStatus.ERROR);
+        Assert.assertEquals(LookupStatus.ERROR, asl.getLookupStatus());
+    }
+
+    @Test
+    public void servesLastTableWhileLookupIsRunning() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        asl.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+        asl.answer(recordsWithTtl(0x20000));
+
+        asl.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, asl.getLookupStatus());
+        Assert.assertNotNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        asl.fail();
+        Assert.assertEquals(LookupStatus.ERROR, asl.getLookupStatus());
+        Assert.assertNotNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        Assert.assertEquals("1.2.276.0.76.3.1.91", asl.getHomeCommunityId());
+    }
+
+    @Test
+    public void servesExpiredTableWithinServeStaleWindowAfterError() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        final VirtualClock clock = new VirtualClock();
+        asl.setClock(clock);
+        asl.setServeStaleMillis(60_000);
+        asl.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+        asl.answer(recordsWithTtl(1));
+        clock.advance(2, TimeUnit.SECONDS);
+        Assert.assertNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+
+        asl.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+        Assert.assertNotNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        asl.fail();
+        Assert.assertNotNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+
+        asl.setServeStaleMillis(0);
+        Assert.assertNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+    }
+
+    @Test
+    public void entriesExpireAfterTtlInSeconds() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        final VirtualClock clock = new VirtualClock();
+        asl.setClock(clock);
+        asl.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+        asl.answer(recordsWithTtl(300));
+
+        clock.advance(300, TimeUnit.SECONDS);
+        Assert.assertNotNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        Assert.assertEquals("1.2.276.0.76.3.1.91", asl.getHomeCommunityId());
+
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        Assert.assertNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        Assert.assertNull(asl.getHomeCommunityId());
+    }
+
+    @Test
+    public void missingTxtRecordDropsTable() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        asl.setServeStaleMillis(60_000);
+        asl.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+        asl.answer(recordsWithTtl(0x20000));
+
+        asl.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+        asl.answer(new Record[0]);
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, asl.getLookupStatus());
+        Assert.assertNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        Assert.assertNull(asl.getHomeCommunityId());
+    }
+
+    @Test
+    public void lookupOfOtherFqdnDropsTable() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        asl.lookup(FQDN, lookupStatus -> {
+            // Not used
+        });
+        asl.answer(recordsWithTtl(0x20000));
+
+        asl.lookup("other.test.fqdn", lookupStatus -> {
+            // Not used
+        });
+
+        Assert.assertNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+    }
+
+    @Test
+    public void lookupsOfSameFqdnShareOneResolution() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        final List<LookupStatus> receivedCallBacks = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            asl.lookup(FQDN, receivedCallBacks::add);
+        }
+        Assert.assertEquals(1, asl.getResolutionCount());
+        Assert.assertTrue(receivedCallBacks.isEmpty());
+
+        asl.answer(recordsWithTtl(0x20000));
+
+        Assert.assertEquals(Arrays.asList(LookupStatus.SUCCESS, LookupStatus.SUCCESS, LookupStatus.SUCCESS), receivedCallBacks);
+        Assert.assertFalse(asl.isRunning());
+    }
+
+    @Test
+    public void tooOldLookupIsRequeried() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        asl.setMaxInFlightAgeMillis(0);
+        final AtomicReference<LookupStatus> firstCallBack = new AtomicReference<>();
+        final AtomicReference<LookupStatus> secondCallBack = new AtomicReference<>();
+        asl.lookup(FQDN, firstCallBack::set);
+        Thread.sleep(5);
+
+        asl.lookup(FQDN, secondCallBack::set);
+        Assert.assertEquals(2, asl.getResolutionCount());
+        asl.answer(0, new Record[0]);
+        Assert.assertNull(firstCallBack.get());
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, asl.getLookupStatus());
+
+        asl.answer(1, recordsWithTtl(0x20000));
+        Assert.assertEquals(LookupStatus.SUCCESS, firstCallBack.get());
+        Assert.assertEquals(LookupStatus.SUCCESS, secondCallBack.get());
+        Assert.assertNotNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+    }
+
+    @Test
+    public void lookupOfOtherFqdnEndsRunningLookupWithError() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        final AtomicReference<LookupStatus> receivedCallBack = new AtomicReference<>();
+        asl.lookup(FQDN, receivedCallBack::set);
+
+        asl.lookup("other.test.fqdn", lookupStatus -> {
+            // Not used
+        });
+
+        Assert.assertEquals(LookupStatus.ERROR, receivedCallBack.get());
+        asl.answer(0, recordsWithTtl(0x20000));
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, asl.getLookupStatus());
+        Assert.assertNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+    }
+
+    @Test
+    public void answerOfLookupSupersededBeforePublishingIsDropped() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        final List<String> publishedFqdns = new CopyOnWriteArrayList<>();
+        asl.setEndpointTableListener((fqdn, endpointTable) -> publishedFqdns.add(fqdn));
+        asl.lookup(FQDN, null);
+        supersedeOnAnswerParsed(asl);
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT);
+        txtAnswer.add(blob, 0, blob.length, 0x20000);
+
+        asl.answer(0, txtAnswer);
+
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, asl.getLookupStatus());
+        Assert.assertNull(asl.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        Assert.assertTrue(publishedFqdns.isEmpty());
+    }
+
+    @Test
+    public void missingTxtRecordOfLookupSupersededBeforePublishingIsDropped() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        final List<String> publishedFqdns = new CopyOnWriteArrayList<>();
+        asl.setEndpointTableListener((fqdn, endpointTable) -> publishedFqdns.add(fqdn));
+        asl.lookup(FQDN, null);
+        supersedeOnAnswerParsed(asl);
+
+        asl.answer(0, new TxtAnswer());
+
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, asl.getLookupStatus());
+        Assert.assertTrue(publishedFqdns.isEmpty());
+    }
+
+    @Test
+    public void callbacksOnSameExecutorAreDeliveredInOneTask() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        final List<Runnable> uiTasks = new CopyOnWriteArrayList<>();
+        final List<Runnable> otherTasks = new CopyOnWriteArrayList<>();
+        final Executor uiExecutor = uiTasks::add;
+        final List<LookupStatus> receivedCallBacks = new CopyOnWriteArrayList<>();
+        asl.lookup(FQDN, uiExecutor, receivedCallBacks::add);
+        asl.lookup(FQDN, uiExecutor, receivedCallBacks::add);
+        asl.lookup(FQDN, otherTasks::add, receivedCallBacks::add);
+
+        asl.answer(recordsWithTtl(0x20000));
+
+        Assert.assertEquals(1, asl.getResolutionCount());
+        Assert.assertEquals(1, uiTasks.size());
+        Assert.assertEquals(1, otherTasks.size());
+        Assert.assertTrue(receivedCallBacks.isEmpty());
+        uiTasks.get(0).run();
+        Assert.assertEquals(Arrays.asList(LookupStatus.SUCCESS, LookupStatus.SUCCESS), receivedCallBacks);
+        otherTasks.get(0).run();
+        Assert.assertEquals(3, receivedCallBacks.size());
+    }
+
+    @Test
+    public void defaultCallbackIsNotCalledOnAnsweringThread() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        asl.setCallbackExecutor(null);
+        final CompletableFuture<Thread> callbackThread = new CompletableFuture<>();
+        asl.lookup(FQDN, lookupStatus -> callbackThread.complete(Thread.currentThread()));
+
+        asl.answer(recordsWithTtl(0x20000));
+
+        final Thread thread = callbackThread.get(5, TimeUnit.SECONDS);
+        Assert.assertNotSame(Thread.currentThread(), thread);
+        Assert.assertTrue(thread.getName(), thread.getName().startsWith("ServiceLocator-callback-"));
+    }
+
+    @Test
+    public void rejectedCallbackIsCalledOnAnsweringThread() throws Exception {
+        final ControlledServiceLocator asl = new ControlledServiceLocator();
+        final AtomicReference<LookupStatus> receivedCallBack = new AtomicReference<>();
+        asl.lookup(FQDN, task -> {
+            throw new RejectedExecutionException("shut down");
+        }, receivedCallBack::set);
+
+        asl.answer(recordsWithTtl(0x20000));
+
+        Assert.assertEquals(LookupStatus.SUCCESS, receivedCallBack.get());
+    }
+
+    /**
+     * Starts a lookup of another FQDN after the answer of the running one was checked and parsed, but before it is published
+     */
+    private static void supersedeOnAnswerParsed(final ControlledServiceLocator asl) {
+        asl.setMetricsListener(new LookupMetricsListener() {
+
+            @Override
+            public void onAnswerParsed(final String fqdn, final int records, final long parseNanos) {
+                asl.lookup("other.test.fqdn", null);
+            }
+        });
+    }
+
+    private static Record[] recordsWithTtl(final long ttl) throws IOException {
+        return ControlledServiceLocator.records(RECORD_TXT, ttl);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xbill.DNS.Rcode;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Test {@link DnsjavaTxtResolver} against a name server answering on the loopback interface
+ */
+public class DnsjavaTxtResolverTest extends AbstractServiceLocatorTestTest {
+
+    private FakeNameServer server;
+
+    @Before
+    public void init() throws Exception {
+        server = new FakeNameServer(RECORD_TXT);
+    }
+
+    @After
+    public void close() throws Exception {
+        // null if the setup failed
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void resolvesTxtRecords() throws Exception {
+        server.rcode = Rcode.NOERROR;
+
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+        checkUrls(serviceLocator);
+    }
+
+    @Test
+    public void nonExistingNameHasNoTxtRecord() throws Exception {
+        server.rcode = Rcode.NXDOMAIN;
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup());
+    }
+
+    @Test
+    public void serverFailureIsError() throws Exception {
+        server.rcode = Rcode.SERVFAIL;
+
+        Assert.assertEquals(LookupStatus.ERROR, lookup());
+        Assert.assertEquals(LookupStatus.ERROR, serviceLocator.getLookupStatus());
+    }
+
+    @Test
+    public void cancelledQueryIsNotSent() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final CountDownLatch busy = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    busy.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            final AtomicBoolean called = new AtomicBoolean();
+            final TxtResolver.Cancellable query = new DnsjavaTxtResolver(server.getAddress()).resolve(FQDN, executor, new TxtResolver.Callback() {
+
+                @Override
+                public void onAnswer(final TxtAnswer txtAnswer) {
+                    called.set(true);
+                }
+
+                @Override
+                public void onError(final Exception e) {
+                    called.set(true);
+                }
+            });
+
+            query.cancel();
+            busy.countDown();
+
+            executor.submit(() -> null).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(0, server.udpQueries.get());
+            Assert.assertFalse(called.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private LookupStatus lookup() throws Exception {
+        serviceLocator = new ResolverServiceLocator(new DnsjavaTxtResolver(server.getAddress()));
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, lookupStatus::complete);
+        return lookupStatus.get(5, TimeUnit.SECONDS);
+    }
+}
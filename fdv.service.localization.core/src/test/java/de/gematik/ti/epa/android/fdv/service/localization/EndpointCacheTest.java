@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Test {@link EndpointCache}
+ */
+public class EndpointCacheTest extends AbstractServiceLocatorTestTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File cacheFile;
+    private final VirtualClock clock = new VirtualClock();
+
+    @Before
+    public void init() throws Exception {
+        cacheFile = new File(temporaryFolder.getRoot(), "endpoints.cache");
+    }
+
+    @Test
+    public void restoresEntriesWithinTtl() throws Exception {
+        final long now = System.currentTimeMillis();
+        writeCache(now + 60_000, now + 120_000);
+
+        final Map<String, EndpointTable> endpointTables = new EndpointCache(cacheFile, clock).load(now);
+
+        final EndpointTable endpointTable = endpointTables.get(FQDN.toLowerCase());
+        Assert.assertEquals(FQDN, endpointTable.getFqdn());
+        Assert.assertEquals("1.2.276.0.76.3.1.91", endpointTable.getHomeCommunityId(clock.millis()));
+        Assert.assertEquals("https://" + FQDN + ":443/docv/I_Account_Management_Insurant",
+                endpointTable.getEndpointURL(ServiceInterfaceName.I_ACCOUNT_MANAGEMENT_INSURANT, clock.millis()).toString());
+        // wall clock and monotonic clock are converted with separate readings on write and load
+        Assert.assertEquals(clock.millis() + 60_000, endpointTable.getEarliestValidUntil(), 100);
+    }
+
+    @Test
+    public void dropsExpiredEntries() throws Exception {
+        final long now = System.currentTimeMillis();
+        writeCache(now - 1_000, now + 60_000);
+
+        final EndpointTable endpointTable = new EndpointCache(cacheFile, clock).load(now).get(FQDN.toLowerCase());
+
+        Assert.assertNull(endpointTable.getEndpointURL(ServiceInterfaceName.I_ACCOUNT_MANAGEMENT_INSURANT, clock.millis()));
+        Assert.assertEquals("1.2.276.0.76.3.1.91", endpointTable.getHomeCommunityId(clock.millis()));
+        Assert.assertTrue(new EndpointCache(cacheFile, clock).load(now + 61_000).isEmpty());
+    }
+
+    @Test
+    public void ignoresCorruptFile() throws Exception {
+        final long now = System.currentTimeMillis();
+        writeCache(now + 60_000, now + 60_000);
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.seek(20);
+            final int value = file.read();
+            file.seek(20);
+            file.write(value ^ 0xFF);
+        }
+
+        Assert.assertTrue(new EndpointCache(cacheFile).load(now).isEmpty());
+        Assert.assertFalse(cacheFile.exists());
+    }
+
+    @Test
+    public void ignoresTruncatedFile() throws Exception {
+        final long now = System.currentTimeMillis();
+        writeCache(now + 60_000, now + 60_000);
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+
+        Assert.assertTrue(new EndpointCache(cacheFile).load(now).isEmpty());
+    }
+
+    @Test
+    public void registryServesCachedEntriesBeforeLookup() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        new ServiceLocatorRegistry(() -> locator, null, new EndpointCache(cacheFile)).lookup(FQDN, null);
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 0x20000));
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (!cacheFile.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        final ServiceLocatorRegistry restarted = new ServiceLocatorRegistry(ControlledServiceLocator::new, null, new EndpointCache(cacheFile));
+
+        Assert.assertEquals(LookupStatus.SUCCESS, restarted.getLookupStatus(FQDN));
+        Assert.assertEquals("1.2.276.0.76.3.1.91", restarted.getHomeCommunityId(FQDN));
+        Assert.assertEquals("https://" + FQDN + ":443/docv/I_Account_Management_Insurant",
+                restarted.endpointURLForInterface(FQDN, ServiceInterfaceName.I_ACCOUNT_MANAGEMENT_INSURANT).toString());
+    }
+
+    /**
+     * Writes entries expiring at the given wall clock times, converted to the virtual clock
+     */
+    private void writeCache(final long docvValidUntil, final long hcidValidUntil) throws Exception {
+        final long clockOffset = clock.millis() - System.currentTimeMillis();
+        final Map<String, GatewayModulePathType> gatewayModulePaths = new HashMap<>();
+        gatewayModulePaths.put("docv", new GatewayModulePathType("/docv", 0, docvValidUntil + clockOffset));
+        gatewayModulePaths.put("hcid", new GatewayModulePathType("1.2.276.0.76.3.1.91", 0, hcidValidUntil + clockOffset));
+        final EndpointCache endpointCache = new EndpointCache(cacheFile, clock);
+        endpointCache.update(FQDN, EndpointTable.build(FQDN, gatewayModulePaths), Runnable::run);
+    }
+}
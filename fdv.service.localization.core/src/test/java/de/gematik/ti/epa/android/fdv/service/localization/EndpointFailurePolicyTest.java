@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Test {@link EndpointFailurePolicy} with failures reported to a {@link ResolverServiceLocator}
+ */
+public class EndpointFailurePolicyTest extends AbstractServiceLocatorTestTest {
+
+    private static final ServiceInterfaceName INTERFACE = ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT;
+
+    private final List<TxtResolver.Callback> queries = new CopyOnWriteArrayList<>();
+    private final List<Integer> flushesAtQuery = new CopyOnWriteArrayList<>();
+    private final AtomicInteger flushes = new AtomicInteger();
+    private final VirtualClock clock = new VirtualClock();
+
+    @Before
+    public void init() {
+        serviceLocator = new ResolverServiceLocator(new TxtResolver() {
+
+            @Override
+            public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+                flushesAtQuery.add(flushes.get());
+                queries.add(callback);
+                if (queries.size() == 1) {
+                    callback.onAnswer(answer());
+                }
+                return Cancellable.NONE;
+            }
+
+            @Override
+            public void flushCache() {
+                flushes.incrementAndGet();
+            }
+        });
+        serviceLocator.setClock(clock);
+        serviceLocator.setEndpointFailurePolicy(new EndpointFailurePolicy(3, 60_000));
+        serviceLocator.lookup(FQDN, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidFailureThreshold() {
+        new EndpointFailurePolicy(0, 60_000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMinResolveInterval() {
+        new EndpointFailurePolicy(1, -1);
+    }
+
+    @Test
+    public void thresholdStartsLookupWhileTableIsServed() {
+        serviceLocator.reportEndpointFailure(INTERFACE);
+        serviceLocator.reportEndpointFailure(INTERFACE);
+        Assert.assertEquals(1, queries.size());
+
+        serviceLocator.reportEndpointFailure(INTERFACE);
+
+        Assert.assertEquals(2, queries.size());
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, serviceLocator.getLookupStatus());
+        Assert.assertNotNull(serviceLocator.endpointURLForInterface(INTERFACE));
+        Assert.assertTrue(serviceLocator.getFlightRecorder().dump().contains("ENDPOINT_FAILURES fqdn=" + FQDN + " interface=" + INTERFACE + " failures=3"));
+    }
+
+    @Test
+    public void lookupAfterFailuresBypassesResolverCache() {
+        failTimes(2);
+        Assert.assertEquals(0, flushes.get());
+
+        serviceLocator.reportEndpointFailure(INTERFACE);
+
+        Assert.assertEquals(Arrays.asList(0, 1), flushesAtQuery);
+    }
+
+    @Test
+    public void successEndsFailuresInARow() {
+        serviceLocator.reportEndpointFailure(INTERFACE);
+        serviceLocator.reportEndpointFailure(INTERFACE);
+        serviceLocator.reportEndpointSuccess(INTERFACE);
+        serviceLocator.reportEndpointFailure(INTERFACE);
+        serviceLocator.reportEndpointFailure(INTERFACE);
+
+        Assert.assertEquals(1, queries.size());
+    }
+
+    @Test
+    public void lookupsAreRateLimited() {
+        failTimes(3);
+        queries.get(1).onAnswer(answer());
+        failTimes(3);
+        Assert.assertEquals(2, queries.size());
+
+        clock.advance(60, TimeUnit.SECONDS);
+        failTimes(3);
+
+        Assert.assertEquals(3, queries.size());
+    }
+
+    @Test
+    public void burstOfFailuresSendsOneQuery() throws Exception {
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] reporters = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            reporters[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                failTimes(100);
+            });
+            reporters[t].start();
+        }
+        start.countDown();
+        for (final Thread reporter : reporters) {
+            reporter.join();
+        }
+
+        Assert.assertEquals(2, queries.size());
+    }
+
+    @Test
+    public void withoutPolicyFailuresAreIgnored() {
+        serviceLocator.setEndpointFailurePolicy(null);
+
+        failTimes(10);
+
+        Assert.assertEquals(1, queries.size());
+    }
+
+    private void failTimes(final int failures) {
+        for (int i = 0; i < failures; i++) {
+            serviceLocator.reportEndpointFailure(INTERFACE);
+        }
+    }
+
+    private static TxtAnswer answer() {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT);
+        txtAnswer.add(blob, 0, blob.length, TTL);
+        return txtAnswer;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * Test {@link EndpointTable}
+ */
+public class EndpointTableTest extends AbstractServiceLocatorTestTest {
+
+    private static final int WARM_UP_READS = 200_000;
+    private static final int MEASURED_READS = 1_000_000;
+    private static final long MAX_ALLOCATED_BYTES = 1024;
+
+    @Before
+    public void init() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        serviceLocator = locator;
+        locator.lookup(FQDN, null);
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 0x20000));
+    }
+
+    @Test
+    public void readsAreBuiltOnce() {
+        checkUrls(serviceLocator);
+        final URL url = serviceLocator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT);
+        Assert.assertSame(url, serviceLocator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+    }
+
+    @Test
+    public void readsDoNotAllocate() {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof ThreadMXBean && ((ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported());
+        final ThreadMXBean allocationBean = (ThreadMXBean) threadMXBean;
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        final ServiceInterfaceName[] serviceInterfaceNames = ServiceInterfaceName.values();
+        final long threadId = Thread.currentThread().getId();
+
+        int found = read(serviceInterfaceNames, WARM_UP_READS);
+        final long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+        found += read(serviceInterfaceNames, MEASURED_READS);
+        final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        Assert.assertEquals(WARM_UP_READS + MEASURED_READS, found);
+        Assert.assertTrue("endpointURLForInterface allocated " + allocated + " bytes for " + MEASURED_READS + " reads", allocated < MAX_ALLOCATED_BYTES);
+    }
+
+    private int read(final ServiceInterfaceName[] serviceInterfaceNames, final int reads) {
+        int found = 0;
+        for (int i = 0; i < reads; i++) {
+            if (serviceLocator.endpointURLForInterface(serviceInterfaceNames[i % serviceInterfaceNames.length]) != null
+                    && serviceLocator.getHomeCommunityId() != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    public void expiredAndMissingEntries() {
+        final Map<String, GatewayModulePathType> values = new HashMap<>();
+        values.put("docv", new GatewayModulePathType("/docv", -1000));
+        values.put("hcid", new GatewayModulePathType("1.2.276.0.76.3.1.91", 1000));
+        final EndpointTable endpointTable = EndpointTable.build(FQDN, values);
+        final long now = PlatformClock.INSTANCE.millis();
+
+        Assert.assertNull(endpointTable.getEndpointURL(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT, now));
+        Assert.assertNull(endpointTable.getEndpointURL(ServiceInterfaceName.I_AUTHENTICATION_INSURANT, now));
+        Assert.assertEquals("1.2.276.0.76.3.1.91", endpointTable.getHomeCommunityId(now));
+        Assert.assertNull(EndpointTable.EMPTY.getHomeCommunityId(now));
+    }
+
+    @Test(expected = ServiceLocatorException.class)
+    public void invalidPath() {
+        final Map<String, GatewayModulePathType> values = new HashMap<>();
+        values.put("docv", new GatewayModulePathType("docv:/x", 1000));
+        EndpointTable.build("[invalid", values);
+    }
+}
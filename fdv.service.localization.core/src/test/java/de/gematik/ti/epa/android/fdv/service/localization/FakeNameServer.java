@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+
+/**
+ * Name server on the loopback interface answering every TXT query over UDP and TCP with the given record
+ */
+class FakeNameServer implements Closeable {
+
+    final AtomicInteger udpQueries = new AtomicInteger();
+    final AtomicInteger tcpQueries = new AtomicInteger();
+    final AtomicInteger dropQueries = new AtomicInteger();
+    volatile int rcode = Rcode.NOERROR;
+    volatile boolean truncate;
+    private final String recordTxt;
+    private static final int BIND_ATTEMPTS = 20;
+
+    private final DatagramSocket udpSocket;
+    private final ServerSocket tcpSocket;
+
+    /**
+     * Starts the server on a free port
+     *
+     * @param recordTxt
+     *            character-strings of the TXT record in the answer to every query
+     */
+    FakeNameServer(final String recordTxt) throws IOException {
+        this.recordTxt = recordTxt;
+        // the UDP port with the number of a free TCP port may be taken, then another TCP port is tried
+        ServerSocket boundTcpSocket = null;
+        DatagramSocket boundUdpSocket = null;
+        for (int attempt = 1; boundUdpSocket == null; attempt++) {
+            boundTcpSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            try {
+                boundUdpSocket = new DatagramSocket(boundTcpSocket.getLocalPort(), InetAddress.getLoopbackAddress());
+            } catch (final BindException e) {
+                boundTcpSocket.close();
+                if (attempt == BIND_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        tcpSocket = boundTcpSocket;
+        udpSocket = boundUdpSocket;
+        start(this::serveUdp, "fake-name-server-udp");
+        start(this::serveTcp, "fake-name-server-tcp");
+    }
+
+    InetSocketAddress getAddress() {
+        return (InetSocketAddress) udpSocket.getLocalSocketAddress();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (udpSocket != null) {
+            udpSocket.close();
+        }
+        if (tcpSocket != null) {
+            tcpSocket.close();
+        }
+    }
+
+    private static void start(final Runnable runnable, final String name) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void serveUdp() {
+        final byte[] buffer = new byte[512];
+        while (!udpSocket.isClosed()) {
+            try {
+                final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                udpSocket.receive(packet);
+                udpQueries.incrementAndGet();
+                if (dropQueries.getAndUpdate(drop -> Math.max(drop - 1, 0)) > 0) {
+                    continue;
+                }
+                final byte[] wire = answer(new Message(packet.getData()), truncate);
+                udpSocket.send(new DatagramPacket(wire, wire.length, packet.getSocketAddress()));
+            } catch (final IOException e) {
+                // closed by the test
+            }
+        }
+    }
+
+    private void serveTcp() {
+        while (!tcpSocket.isClosed()) {
+            try (Socket socket = tcpSocket.accept()) {
+                final DataInputStream in = new DataInputStream(socket.getInputStream());
+                final byte[] query = new byte[in.readUnsignedShort()];
+                in.readFully(query);
+                tcpQueries.incrementAndGet();
+                final byte[] wire = answer(new Message(query), false);
+                final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeShort(wire.length);
+                out.write(wire);
+                out.flush();
+            } catch (final IOException e) {
+                // closed by the test
+            }
+        }
+    }
+
+    private byte[] answer(final Message query, final boolean truncated) throws IOException {
+        final Message response = new Message(query.getHeader().getID());
+        response.getHeader().setFlag(Flags.QR);
+        response.getHeader().setRcode(rcode);
+        final Record question = query.getQuestion();
+        response.addRecord(question, Section.QUESTION);
+        if (truncated) {
+            response.getHeader().setFlag(Flags.TC);
+        } else if (rcode == Rcode.NOERROR) {
+            response.addRecord(Record.fromString(question.getName(), AbstractServiceLocatorTestTest.TYPE_TXT, DClass.IN,
+                    AbstractServiceLocatorTestTest.TTL, recordTxt, question.getName()), Section.ANSWER);
+        }
+        return response.toWire();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Test {@link FlightRecorder} alone and fed by a {@link ResolverServiceLocator}
+ */
+public class FlightRecorderTest extends AbstractServiceLocatorTestTest {
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        Assert.assertEquals(8, new FlightRecorder(5).getCapacity());
+        Assert.assertEquals(8, new FlightRecorder(8).getCapacity());
+        Assert.assertEquals(1, new FlightRecorder(1).getCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCapacity() {
+        new FlightRecorder(0);
+    }
+
+    @Test
+    public void keepsLastEventsOldestFirst() {
+        final FlightRecorder recorder = new FlightRecorder(4);
+        for (int i = 0; i < 10; i++) {
+            recorder.recordLookupStarted("insurer" + i + ".test.fqdn", "backend");
+        }
+
+        final String[] lines = recorder.dump().split("\n");
+
+        Assert.assertEquals(10, recorder.getRecordedCount());
+        Assert.assertEquals(4, lines.length);
+        Assert.assertTrue(lines[0], lines[0].contains(" #6 LOOKUP_STARTED fqdn=insurer6.test.fqdn backend=backend"));
+        Assert.assertTrue(lines[3], lines[3].contains(" #9 LOOKUP_STARTED fqdn=insurer9.test.fqdn"));
+    }
+
+    @Test
+    public void emptyRecorderDumpsNothing() {
+        Assert.assertEquals("", new FlightRecorder(4).dump());
+    }
+
+    @Test
+    public void lookupIsRecorded() throws Exception {
+        serviceLocator = new ResolverServiceLocator((fqdn, executor, callback) -> {
+            final TxtAnswer txtAnswer = new TxtAnswer();
+            final byte[] blob = txtBlob(RECORD_TXT);
+            txtAnswer.add(blob, 0, blob.length, TTL);
+            callback.onAnswer(txtAnswer);
+            return TxtResolver.Cancellable.NONE;
+        });
+
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+
+        final String[] lines = serviceLocator.getFlightRecorder().dump().split("\n");
+        Assert.assertEquals(3, lines.length);
+        Assert.assertTrue(lines[0], lines[0].contains("LOOKUP_STARTED fqdn=" + FQDN));
+        Assert.assertTrue(lines[1], lines[1].contains("ANSWER fqdn=" + FQDN + " records=1 bytes=" + txtBlob(RECORD_TXT).length + " ttls=[" + TTL + "]"));
+        Assert.assertTrue(lines[1], lines[1].contains("authn"));
+        Assert.assertTrue(lines[2], lines[2].contains("LOOKUP_ENDED fqdn=" + FQDN));
+        Assert.assertTrue(lines[2], lines[2].contains("status=SUCCESS durationMicros="));
+    }
+
+    @Test
+    public void registryRecordsLookupsOfAllFqdns() throws Exception {
+        final ServiceLocatorRegistry registry = new ServiceLocatorRegistry((fqdn, executor, callback) -> {
+            final TxtAnswer txtAnswer = new TxtAnswer();
+            final byte[] blob = txtBlob(RECORD_TXT);
+            txtAnswer.add(blob, 0, blob.length, TTL);
+            callback.onAnswer(txtAnswer);
+            return TxtResolver.Cancellable.NONE;
+        });
+
+        Assert.assertTrue(registry.lookupAsync(FQDN).get(5, TimeUnit.SECONDS).isSuccess());
+        Assert.assertTrue(registry.lookupAsync("other.test.fqdn").get(5, TimeUnit.SECONDS).isSuccess());
+
+        final String dump = registry.getFlightRecorder().dump();
+        Assert.assertTrue(dump, dump.contains("LOOKUP_ENDED fqdn=" + FQDN));
+        Assert.assertTrue(dump, dump.contains("LOOKUP_ENDED fqdn=other.test.fqdn"));
+        Assert.assertEquals(6, dump.split("\n").length);
+    }
+
+    @Test
+    public void errorAndRetryAreRecorded() throws Exception {
+        final AtomicBoolean failed = new AtomicBoolean();
+        serviceLocator = new ResolverServiceLocator((fqdn, executor, callback) -> {
+            if (failed.compareAndSet(false, true)) {
+                callback.onError(new IOException("network unreachable", new IllegalStateException("no route")));
+            } else {
+                callback.onAnswer(new TxtAnswer());
+            }
+            return TxtResolver.Cancellable.NONE;
+        });
+        serviceLocator.setRetryPolicy(new RetryPolicy(2, 1, 1, 0));
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup());
+
+        final String dump = serviceLocator.getFlightRecorder().dump();
+        Assert.assertTrue(dump, dump.contains("ERROR fqdn=" + FQDN + " exception=java.io.IOException: network unreachable cause=java.lang.IllegalStateException: no route"));
+        Assert.assertTrue(dump, dump.contains("RETRY fqdn=" + FQDN + " retry=1 backoffMillis=1"));
+        Assert.assertTrue(dump, dump.contains("ANSWER fqdn=" + FQDN + " records=0 bytes=0 ttls=[] keys=[]"));
+        Assert.assertTrue(dump, dump.contains("status=MISSING_TXT_RECORD"));
+    }
+
+    @Test
+    public void cancelledLookupIsRecorded() throws Exception {
+        serviceLocator = new ResolverServiceLocator((fqdn, executor, callback) -> TxtResolver.Cancellable.NONE);
+        serviceLocator.lookup(FQDN, null);
+
+        serviceLocator.cancel();
+
+        Assert.assertTrue(serviceLocator.getFlightRecorder().dump().contains("status=ERROR durationMicros="));
+        Assert.assertTrue(serviceLocator.getFlightRecorder().dump().contains("reason=cancelled"));
+    }
+
+    @Test
+    public void withoutRecorderNothingIsRecorded() throws Exception {
+        serviceLocator = new ResolverServiceLocator((fqdn, executor, callback) -> {
+            callback.onAnswer(new TxtAnswer());
+            return TxtResolver.Cancellable.NONE;
+        });
+        serviceLocator.setFlightRecorder(null);
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup());
+        Assert.assertNull(serviceLocator.getFlightRecorder());
+    }
+
+    @Test
+    public void concurrentRecordingKeepsLastEvents() throws Exception {
+        final FlightRecorder recorder = new FlightRecorder(64);
+        final int threads = 4;
+        final int perThread = 10_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            writers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    recorder.recordLookupStarted(FQDN, "backend");
+                }
+            });
+            writers[t].start();
+        }
+        start.countDown();
+        for (final Thread writer : writers) {
+            writer.join();
+        }
+
+        Assert.assertEquals(threads * perThread, recorder.getRecordedCount());
+        Assert.assertEquals(64, recorder.dump().split("\n").length);
+    }
+
+    private LookupStatus lookup() throws Exception {
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, lookupStatus::complete);
+        return lookupStatus.get(5, TimeUnit.SECONDS);
+    }
+}
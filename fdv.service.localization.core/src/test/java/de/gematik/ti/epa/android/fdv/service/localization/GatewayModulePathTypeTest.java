@@ -27,15 +27,31 @@ import org.junit.Test;
 public class GatewayModulePathTypeTest {
 
     @Test
+    @SuppressWarnings("deprecation")
     public void testPathAndValidUntil() {
-        long currentPlusTTL = System.currentTimeMillis() + 1000;
+        long currentPlusTTL = System.currentTimeMillis() + 1000 * 1000;
         GatewayModulePathType gatewayModulePathType = new GatewayModulePathType("/avzd", 1000);
         Assert.assertEquals("/avzd", gatewayModulePathType.getPath());
-        Assert.assertTrue( new Date (currentPlusTTL).getTime() <= gatewayModulePathType.getValidUntil().getTime());
+        Assert.assertTrue( new Date (currentPlusTTL).getTime() - 1000 <= gatewayModulePathType.getValidUntil().getTime());
         currentPlusTTL = System.currentTimeMillis();
-        gatewayModulePathType = new GatewayModulePathType("/avzd", 0);
-        Assert.assertTrue( new Date (currentPlusTTL).getTime() <= gatewayModulePathType.getValidUntil().getTime());
         gatewayModulePathType = new GatewayModulePathType("/avzd", -1000);
         Assert.assertTrue( new Date (currentPlusTTL).getTime() >= gatewayModulePathType.getValidUntil().getTime());
     }
+
+    @Test
+    public void ttlIsInSeconds() {
+        final GatewayModulePathType gatewayModulePathType = new GatewayModulePathType("/avzd", 300, 5000);
+
+        Assert.assertEquals(5000 + 300_000, gatewayModulePathType.getExpiresAt());
+    }
+
+    @Test
+    public void ttlZeroExpiresWhenResolved() {
+        Assert.assertEquals(5000, new GatewayModulePathType("/avzd", 0, 5000).getExpiresAt());
+
+        final long before = PlatformClock.INSTANCE.millis();
+        final GatewayModulePathType gatewayModulePathType = new GatewayModulePathType("/avzd", 0);
+        Assert.assertTrue(before <= gatewayModulePathType.getExpiresAt());
+        Assert.assertTrue(gatewayModulePathType.getExpiresAt() <= PlatformClock.INSTANCE.millis());
+    }
 }
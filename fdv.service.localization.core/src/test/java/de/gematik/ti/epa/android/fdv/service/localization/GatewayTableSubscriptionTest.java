@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xbill.DNS.Record;
+
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Test {@link GatewayTableSubscription} with lookups answered by the test
+ */
+public class GatewayTableSubscriptionTest extends AbstractServiceLocatorTestTest {
+
+    private static final String MOVED_RECORD_TXT = RECORD_TXT.replace("docv=/docv", "docv=/docv2").replace(" \"sgd2=/sgd2\"", "")
+            + " \"sgd3=/sgd3\"";
+
+    private final ControlledServiceLocator locator = new ControlledServiceLocator();
+    private final List<GatewayTableUpdate> updates = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void firstLookupAddsAllKeys() throws Exception {
+        locator.subscribe(updates::add);
+
+        answer(RECORD_TXT);
+
+        Assert.assertEquals(1, updates.size());
+        final GatewayTableUpdate update = updates.get(0);
+        Assert.assertEquals(FQDN, update.getFqdn());
+        Assert.assertEquals(update.getGatewayModulePaths().keySet(), update.getAddedKeys());
+        Assert.assertTrue(update.getRemovedKeys().isEmpty());
+        Assert.assertTrue(update.getChangedKeys().isEmpty());
+        Assert.assertEquals("/docv", update.getGatewayModulePaths().get("docv"));
+        Assert.assertEquals("1.2.276.0.76.3.1.91", update.getHomeCommunityId());
+        Assert.assertEquals(locator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT),
+                update.getEndpointURLs().get(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+    }
+
+    @Test
+    public void unchangedRefreshPublishesNothing() throws Exception {
+        locator.subscribe(updates::add);
+        answer(RECORD_TXT);
+
+        locator.lookup(FQDN, null);
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 2 * TTL));
+
+        Assert.assertEquals(1, updates.size());
+    }
+
+    @Test
+    public void changedPathsArePublishedAsDiff() throws Exception {
+        locator.subscribe(updates::add);
+        answer(RECORD_TXT);
+
+        answer(MOVED_RECORD_TXT);
+
+        Assert.assertEquals(2, updates.size());
+        final GatewayTableUpdate update = updates.get(1);
+        Assert.assertEquals(Collections.singleton("sgd3"), update.getAddedKeys());
+        Assert.assertEquals(Collections.singleton("sgd2"), update.getRemovedKeys());
+        Assert.assertEquals(Collections.singleton("docv"), update.getChangedKeys());
+        Assert.assertEquals("/docv2", update.getGatewayModulePaths().get("docv"));
+    }
+
+    @Test
+    public void missingTxtRecordRemovesAllKeys() throws Exception {
+        locator.subscribe(updates::add);
+        answer(RECORD_TXT);
+
+        locator.lookup(FQDN, null);
+        locator.answer(new Record[0]);
+
+        Assert.assertEquals(2, updates.size());
+        final GatewayTableUpdate update = updates.get(1);
+        Assert.assertEquals(FQDN, update.getFqdn());
+        Assert.assertEquals(updates.get(0).getAddedKeys(), update.getRemovedKeys());
+        Assert.assertTrue(update.getGatewayModulePaths().isEmpty());
+        Assert.assertTrue(update.getEndpointURLs().isEmpty());
+        Assert.assertNull(update.getHomeCommunityId());
+    }
+
+    @Test
+    public void failedLookupPublishesNothing() throws Exception {
+        locator.subscribe(updates::add);
+        answer(RECORD_TXT);
+
+        locator.lookup(FQDN, null);
+        locator.fail();
+
+        Assert.assertEquals(1, updates.size());
+    }
+
+    @Test
+    public void subscriberGetsServedTableRightAway() throws Exception {
+        answer(RECORD_TXT);
+
+        locator.subscribe(updates::add);
+
+        Assert.assertEquals(1, updates.size());
+        Assert.assertTrue(updates.get(0).getAddedKeys().contains("hcid"));
+    }
+
+    @Test
+    public void slowSubscriberGetsLatestTableOnly() throws Exception {
+        final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+        locator.subscribe(tasks::add, updates::add);
+        tasks.remove(0).run();
+
+        answer(RECORD_TXT);
+        answer(MOVED_RECORD_TXT);
+        answer(RECORD_TXT);
+        answer(MOVED_RECORD_TXT);
+
+        Assert.assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        Assert.assertEquals(1, updates.size());
+        Assert.assertEquals("/docv2", updates.get(0).getGatewayModulePaths().get("docv"));
+        Assert.assertTrue(updates.get(0).getChangedKeys().isEmpty());
+        Assert.assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void tableChangedBackWhileQueuedPublishesNothing() throws Exception {
+        final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+        answer(RECORD_TXT);
+        locator.subscribe(tasks::add, updates::add);
+        tasks.remove(0).run();
+
+        answer(MOVED_RECORD_TXT);
+        answer(RECORD_TXT);
+        tasks.remove(0).run();
+
+        Assert.assertEquals(1, updates.size());
+    }
+
+    @Test
+    public void cancelledSubscriptionGetsNothing() throws Exception {
+        final GatewayTableSubscription subscription = locator.subscribe(updates::add);
+        final List<GatewayTableUpdate> otherUpdates = new CopyOnWriteArrayList<>();
+        locator.subscribe(otherUpdates::add);
+
+        subscription.cancel();
+        answer(RECORD_TXT);
+
+        Assert.assertTrue(subscription.isCancelled());
+        Assert.assertTrue(updates.isEmpty());
+        Assert.assertEquals(1, otherUpdates.size());
+    }
+
+    @Test
+    public void otherFqdnChangesAllKeys() throws Exception {
+        locator.subscribe(updates::add);
+        answer(RECORD_TXT);
+
+        locator.lookup("other.test.fqdn", null);
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, TTL));
+
+        Assert.assertEquals(2, updates.size());
+        Assert.assertEquals("other.test.fqdn", updates.get(1).getFqdn());
+        Assert.assertEquals(new HashSet<>(updates.get(0).getAddedKeys()), updates.get(1).getChangedKeys());
+        Assert.assertEquals(Arrays.asList(), Arrays.asList(updates.get(1).getAddedKeys().toArray()));
+    }
+
+    private void answer(final String recordTxt) throws Exception {
+        locator.lookup(FQDN, null);
+        locator.answer(ControlledServiceLocator.records(recordTxt, TTL));
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test {@link HedgedTxtResolver} with resolvers answered by the test
+ */
+public class HedgedTxtResolverTest extends AbstractServiceLocatorTestTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    private final List<String> queried = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Object> outcome = new CompletableFuture<>();
+    private volatile Object race;
+
+    @After
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void firstAnswerWinsAndOtherQueryIsCancelled() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(0, scheduler, first, second);
+
+        resolver.resolve(FQDN, DIRECT, callback());
+        second.answer(validAnswer());
+
+        Assert.assertTrue(outcome.get(5, TimeUnit.SECONDS) instanceof TxtAnswer);
+        Assert.assertTrue(first.cancelled);
+        Assert.assertFalse(second.cancelled);
+        first.answer(validAnswer());
+        Assert.assertEquals(2, queried.size());
+    }
+
+    @Test
+    public void nextResolverIsQueriedAfterHedgeDelay() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(50, scheduler, first, second);
+
+        final long start = System.nanoTime();
+        resolver.resolve(FQDN, DIRECT, callback());
+        Assert.assertEquals(1, queried.size());
+        second.awaitQuery();
+
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        second.answer(validAnswer());
+        Assert.assertTrue(outcome.get(5, TimeUnit.SECONDS) instanceof TxtAnswer);
+        Assert.assertTrue(first.cancelled);
+    }
+
+    @Test
+    public void answerWithinHedgeDelayQueriesOneResolver() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(100, scheduler, first, second);
+
+        resolver.resolve(FQDN, DIRECT, callback());
+        first.answer(validAnswer());
+
+        Assert.assertTrue(outcome.get(5, TimeUnit.SECONDS) instanceof TxtAnswer);
+        Thread.sleep(200);
+        Assert.assertEquals(1, queried.size());
+        Assert.assertEquals(0, scheduler.getQueue().size());
+    }
+
+    @Test
+    public void failureQueriesNextResolverRightAway() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(60_000, scheduler, first, second);
+
+        resolver.resolve(FQDN, DIRECT, callback());
+        first.fail();
+
+        Assert.assertEquals(2, queried.size());
+        second.answer(validAnswer());
+        Assert.assertTrue(outcome.get(5, TimeUnit.SECONDS) instanceof TxtAnswer);
+    }
+
+    @Test
+    public void malformedAnswerDoesNotWin() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(0, scheduler, first, second);
+        final TxtAnswer malformed = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT);
+        malformed.add(blob, 0, blob.length - 1, TTL);
+
+        resolver.resolve(FQDN, DIRECT, callback());
+        first.answer(malformed);
+
+        Assert.assertFalse(outcome.isDone());
+        second.answer(validAnswer());
+        Assert.assertTrue(outcome.get(5, TimeUnit.SECONDS) instanceof TxtAnswer);
+    }
+
+    @Test
+    public void wrongTxtVersionDoesNotWin() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(0, scheduler, first, second);
+        final TxtAnswer wrongVersion = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT.replace("txtvers=1", "txtvers=2"));
+        wrongVersion.add(blob, 0, blob.length, TTL);
+
+        resolver.resolve(FQDN, DIRECT, callback());
+        first.answer(wrongVersion);
+
+        Assert.assertFalse(outcome.isDone());
+        second.answer(validAnswer());
+        Assert.assertTrue(outcome.get(5, TimeUnit.SECONDS) instanceof TxtAnswer);
+    }
+
+    @Test
+    public void losingQueryIsCancelledWithoutHoldingTheRaceLock() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(0, scheduler, first, second);
+
+        race = resolver.resolve(FQDN, DIRECT, callback());
+        second.answer(validAnswer());
+
+        Assert.assertTrue(first.cancelled);
+        Assert.assertFalse(first.cancelledHoldingRaceLock);
+    }
+
+    @Test
+    public void allFailedIsError() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(0, scheduler, first, second);
+
+        resolver.resolve(FQDN, DIRECT, callback());
+        first.fail();
+        Assert.assertFalse(outcome.isDone());
+        second.fail();
+
+        Assert.assertTrue(outcome.get(5, TimeUnit.SECONDS) instanceof IOException);
+    }
+
+    @Test
+    public void fasterResolverIsQueriedFirstNextTime() throws Exception {
+        final ManualResolver slow = new ManualResolver("slow");
+        final ManualResolver fast = new ManualResolver("fast");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(30, scheduler, slow, fast);
+
+        resolver.resolve(FQDN, DIRECT, callback());
+        fast.awaitQuery();
+        fast.answer(validAnswer());
+        Assert.assertTrue(resolver.getLatencyMillis(0) > resolver.getLatencyMillis(1));
+        queried.clear();
+
+        resolver.resolve(FQDN, DIRECT, callback());
+        Assert.assertEquals("fast", queried.get(0));
+    }
+
+    @Test
+    public void cancelCancelsAllQueries() throws Exception {
+        final ManualResolver first = new ManualResolver("first");
+        final ManualResolver second = new ManualResolver("second");
+        final HedgedTxtResolver resolver = new HedgedTxtResolver(0, scheduler, first, second);
+
+        resolver.resolve(FQDN, DIRECT, callback()).cancel();
+        first.answer(validAnswer());
+
+        Assert.assertTrue(first.cancelled);
+        Assert.assertTrue(second.cancelled);
+        Assert.assertFalse(outcome.isDone());
+    }
+
+    private TxtResolver.Callback callback() {
+        return new TxtResolver.Callback() {
+
+            @Override
+            public void onAnswer(final TxtAnswer txtAnswer) {
+                outcome.complete(txtAnswer);
+            }
+
+            @Override
+            public void onError(final Exception e) {
+                outcome.complete(e);
+            }
+        };
+    }
+
+    private static TxtAnswer validAnswer() {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT);
+        txtAnswer.add(blob, 0, blob.length, TTL);
+        return txtAnswer;
+    }
+
+    /**
+     * Resolver recording its query, answered by the test even after it is cancelled
+     */
+    private final class ManualResolver implements TxtResolver {
+
+        private final String name;
+        private final CompletableFuture<Callback> callback = new CompletableFuture<>();
+        private volatile boolean cancelled;
+        private volatile boolean cancelledHoldingRaceLock;
+
+        ManualResolver(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+            queried.add(name);
+            this.callback.complete(callback);
+            return () -> {
+                cancelledHoldingRaceLock = race != null && Thread.holdsLock(race);
+                cancelled = true;
+            };
+        }
+
+        void awaitQuery() throws Exception {
+            callback.get(5, TimeUnit.SECONDS);
+        }
+
+        void answer(final TxtAnswer txtAnswer) throws Exception {
+            callback.get(5, TimeUnit.SECONDS).onAnswer(txtAnswer);
+        }
+
+        void fail() throws Exception {
+            callback.get(5, TimeUnit.SECONDS).onError(new IOException("network unreachable"));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Test {@link LookupMetrics} fed by a {@link ResolverServiceLocator}
+ */
+public class LookupMetricsTest extends AbstractServiceLocatorTestTest {
+
+    private final LookupMetrics metrics = new LookupMetrics();
+    private final VirtualClock clock = new VirtualClock();
+    private final AnsweringResolver resolver = new AnsweringResolver();
+
+    @Before
+    public void init() {
+        serviceLocator = new ResolverServiceLocator(resolver);
+        serviceLocator.setClock(clock);
+        serviceLocator.setMetricsListener(metrics);
+    }
+
+    @Test
+    public void histogramBucketsArePowersOfTwo() {
+        final LookupMetrics.Histogram histogram = new LookupMetrics.Histogram();
+        histogram.record(500);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.record(TimeUnit.DAYS.toNanos(1));
+
+        Assert.assertEquals(4, histogram.getCount());
+        Assert.assertEquals(1, histogram.getBucketCount(0));
+        Assert.assertEquals(1, histogram.getBucketCount(2));
+        Assert.assertEquals(1, histogram.getBucketCount(10));
+        Assert.assertEquals(1, histogram.getBucketCount(LookupMetrics.Histogram.BUCKET_COUNT - 1));
+        Assert.assertEquals(4, LookupMetrics.Histogram.getBucketUpperBoundMicros(2));
+        Assert.assertEquals(1024, histogram.getPercentileMicros(75));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void emptyHistogramHasNoPercentile() {
+        Assert.assertEquals(0, new LookupMetrics.Histogram().getPercentileMicros(50));
+    }
+
+    @Test
+    public void lookupsAreCountedPerStatusAndBackend() throws Exception {
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+        resolver.fail = true;
+        Assert.assertEquals(LookupStatus.ERROR, lookup());
+
+        Assert.assertEquals(1, metrics.getLookupCount(LookupStatus.SUCCESS));
+        Assert.assertEquals(1, metrics.getLookupCount(LookupStatus.ERROR));
+        Assert.assertEquals(1, metrics.getBackends().size());
+        Assert.assertEquals(2, metrics.getLatencyHistogram("answering").getCount());
+        Assert.assertEquals(0, metrics.getLatencyHistogram("other").getCount());
+    }
+
+    @Test
+    public void answersAreParsedAndCounted() throws Exception {
+        lookup();
+
+        Assert.assertEquals(1, metrics.getAnswerCount());
+        Assert.assertEquals(1, metrics.getRecordCount());
+        Assert.assertEquals(1, metrics.getParseTimeHistogram().getCount());
+    }
+
+    @Test
+    public void endpointReadsAreClassified() throws Exception {
+        serviceLocator.setServeStaleMillis(TimeUnit.SECONDS.toMillis(TTL));
+        lookup();
+        serviceLocator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT);
+        Assert.assertEquals(1, metrics.getEndpointReadCount(LookupMetricsListener.EndpointRead.HIT));
+
+        clock.advance(TTL + 1, TimeUnit.SECONDS);
+        resolver.fail = true;
+        lookup();
+        Assert.assertNotNull(serviceLocator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        Assert.assertEquals(1, metrics.getEndpointReadCount(LookupMetricsListener.EndpointRead.STALE));
+
+        clock.advance(TTL, TimeUnit.SECONDS);
+        Assert.assertNull(serviceLocator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        Assert.assertEquals(1, metrics.getEndpointReadCount(LookupMetricsListener.EndpointRead.EXPIRED));
+        Assert.assertEquals(0, metrics.getEndpointReadCount(LookupMetricsListener.EndpointRead.MISS));
+    }
+
+    @Test
+    public void unknownFqdnIsMiss() {
+        final ServiceLocatorRegistry registry = new ServiceLocatorRegistry(resolver);
+        registry.setMetricsListener(metrics);
+
+        Assert.assertNull(registry.endpointURLForInterface(FQDN, ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+
+        Assert.assertEquals(1, metrics.getEndpointReadCount(LookupMetricsListener.EndpointRead.MISS));
+    }
+
+    @Test
+    public void negativeCacheHitIsCounted() throws Exception {
+        resolver.fail = true;
+        serviceLocator.setNegativeCachePolicy(new NegativeCachePolicy(0, 60_000));
+
+        lookup();
+        lookup();
+
+        Assert.assertEquals(1, metrics.getLookupCount(LookupStatus.ERROR));
+        Assert.assertEquals(1, metrics.getNegativeCacheHitCount());
+    }
+
+    @Test
+    public void withoutListenerNothingIsMeasured() throws Exception {
+        serviceLocator.setMetricsListener(null);
+
+        lookup();
+        serviceLocator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT);
+
+        Assert.assertEquals(0, metrics.getLookupCount(LookupStatus.SUCCESS));
+        Assert.assertEquals(0, metrics.getAnswerCount());
+        Assert.assertEquals(0, metrics.getEndpointReadCount(LookupMetricsListener.EndpointRead.HIT));
+    }
+
+    private LookupStatus lookup() throws Exception {
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, lookupStatus::complete);
+        return lookupStatus.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Resolver answering every query with the test record right away, or failing
+     */
+    private static final class AnsweringResolver implements TxtResolver {
+
+        private volatile boolean fail;
+
+        @Override
+        public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+            if (fail) {
+                callback.onError(new IOException("network unreachable"));
+            } else {
+                final TxtAnswer txtAnswer = new TxtAnswer();
+                final byte[] blob = txtBlob(RECORD_TXT);
+                txtAnswer.add(blob, 0, blob.length, TTL);
+                callback.onAnswer(txtAnswer);
+            }
+            return Cancellable.NONE;
+        }
+
+        @Override
+        public String getName() {
+            return "answering";
+        }
+    }
+}
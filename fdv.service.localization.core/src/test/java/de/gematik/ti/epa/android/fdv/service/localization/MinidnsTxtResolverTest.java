@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.minidns.dnsmessage.DnsMessage;
+import org.minidns.dnsmessage.Question;
+import org.minidns.hla.DnssecResolverApi;
+import org.minidns.record.A;
+import org.minidns.record.Data;
+import org.minidns.record.Record;
+import org.minidns.record.TXT;
+
+/**
+ * Test {@link MinidnsTxtResolver}
+ */
+public class MinidnsTxtResolverTest extends AbstractServiceLocatorTestTest {
+
+    @Test
+    public void toTxtAnswerKeepsTtlOfEachAnswer() throws Exception {
+        final TXT answer = new TXT(txtBlob("\"docv=/docv\""));
+        final TXT other = new TXT(txtBlob("\"authn=/authn\""));
+        final List<Record<? extends Data>> answerSection = new ArrayList<>();
+        answerSection.add(new Record<>(FQDN, Record.TYPE.A, Record.CLASS.IN, 60, new A(127, 0, 0, 1), false));
+        answerSection.add(new Record<>("other.fqdn", Record.TYPE.TXT, Record.CLASS.IN, 60, other, false));
+        answerSection.add(new Record<>(FQDN, Record.TYPE.TXT, Record.CLASS.IN, 3600, answer, false));
+
+        final TxtAnswer txtAnswer = MinidnsTxtResolver.toTxtAnswer(answerSection, Collections.singleton(answer));
+
+        Assert.assertEquals(1, txtAnswer.size());
+        Assert.assertEquals(3600, txtAnswer.getTtl(0));
+        Assert.assertEquals("/docv", txtAnswer.toGatewayModulePaths().get("docv").getPath());
+    }
+
+    @Test
+    public void cacheKeepsNoTxtAnswers() throws Exception {
+        final MinidnsCache cache = new MinidnsCache();
+        final DnsMessage txtQuery = query(Record.TYPE.TXT);
+        final DnsMessage aQuery = query(Record.TYPE.A);
+
+        cache.put(txtQuery, answer(txtQuery, new Record<>(FQDN, Record.TYPE.TXT, Record.CLASS.IN, 3600, new TXT(txtBlob(RECORD_TXT)), false)));
+        cache.put(aQuery, answer(aQuery, new Record<>(FQDN, Record.TYPE.A, Record.CLASS.IN, 3600, new A(127, 0, 0, 1), false)));
+
+        Assert.assertNull(cache.get(txtQuery));
+        Assert.assertNotNull(cache.get(aQuery));
+    }
+
+    @Test
+    public void newDnssecResolverApiDoesNotUseProcessWideCache() {
+        final DnssecResolverApi dnssecResolverApi = MinidnsTxtResolver.newDnssecResolverApi();
+
+        Assert.assertTrue(dnssecResolverApi.getClient().getCache() instanceof MinidnsCache);
+    }
+
+    @Test
+    public void flushCacheClearsCacheOfDnssecResolver() throws Exception {
+        final DnssecResolverApi dnssecResolverApi = MinidnsTxtResolver.newDnssecResolverApi();
+        final MinidnsTxtResolver resolver = new MinidnsTxtResolver(() -> dnssecResolverApi);
+        resolver.warmUp();
+        final DnsMessage aQuery = query(Record.TYPE.A);
+        dnssecResolverApi.getClient().getCache().put(aQuery,
+                answer(aQuery, new Record<>(FQDN, Record.TYPE.A, Record.CLASS.IN, 3600, new A(127, 0, 0, 1), false)));
+
+        resolver.flushCache();
+
+        Assert.assertNull(dnssecResolverApi.getClient().getCache().get(aQuery));
+    }
+
+    private static DnsMessage query(final Record.TYPE type) {
+        return DnsMessage.builder().setQuestion(new Question(FQDN, type)).build();
+    }
+
+    private static DnsMessage answer(final DnsMessage query, final Record<? extends Data> record) {
+        return query.asBuilder().setQrFlag(true).addAnswer(record).setReceiveTimestamp(System.currentTimeMillis()).build();
+    }
+}
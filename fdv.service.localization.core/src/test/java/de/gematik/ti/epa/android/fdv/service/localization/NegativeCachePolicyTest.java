@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Test {@link NegativeCachePolicy}
+ */
+public class NegativeCachePolicyTest extends AbstractServiceLocatorTestTest {
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @Test
+    public void missingTxtRecordMillisHonorsSoaTtl() {
+        final NegativeCachePolicy policy = new NegativeCachePolicy(60_000, 0);
+
+        Assert.assertEquals(30_000, policy.missingTxtRecordMillis(30));
+        Assert.assertEquals(60_000, policy.missingTxtRecordMillis(3600));
+        Assert.assertEquals(60_000, policy.missingTxtRecordMillis(-1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidErrorMillis() {
+        new NegativeCachePolicy(60_000, -1);
+    }
+
+    @Test
+    public void missingTxtRecordIsCached() throws Exception {
+        serviceLocator = emptyAnswerLocator(300);
+        serviceLocator.setNegativeCachePolicy(new NegativeCachePolicy(60_000, 0));
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup(FQDN));
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup(FQDN.toUpperCase()));
+
+        Assert.assertEquals(1, queries.get());
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup("other." + FQDN));
+        Assert.assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void missingTxtRecordExpiresWithSoaTtl() throws Exception {
+        serviceLocator = emptyAnswerLocator(0);
+        serviceLocator.setNegativeCachePolicy(new NegativeCachePolicy(60_000, 60_000));
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup(FQDN));
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup(FQDN));
+
+        Assert.assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void errorIsCached() throws Exception {
+        serviceLocator = new ResolverServiceLocator((fqdn, executor, callback) -> {
+            queries.incrementAndGet();
+            callback.onError(new IOException("network unreachable"));
+            return TxtResolver.Cancellable.NONE;
+        });
+        serviceLocator.setNegativeCachePolicy(new NegativeCachePolicy(0, 60_000));
+
+        Assert.assertEquals(LookupStatus.ERROR, lookup(FQDN));
+        Assert.assertEquals(LookupStatus.ERROR, lookup(FQDN));
+
+        Assert.assertEquals(1, queries.get());
+        serviceLocator.setNegativeCachePolicy(null);
+        Assert.assertEquals(LookupStatus.ERROR, lookup(FQDN));
+        Assert.assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void withoutPolicyNothingIsCached() throws Exception {
+        serviceLocator = emptyAnswerLocator(300);
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup(FQDN));
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup(FQDN));
+
+        Assert.assertEquals(2, queries.get());
+    }
+
+    private ResolverServiceLocator emptyAnswerLocator(final long negativeTtl) {
+        return new ResolverServiceLocator((fqdn, executor, callback) -> {
+            queries.incrementAndGet();
+            final TxtAnswer txtAnswer = new TxtAnswer();
+            txtAnswer.setNegativeTtl(negativeTtl);
+            callback.onAnswer(txtAnswer);
+            return TxtResolver.Cancellable.NONE;
+        });
+    }
+
+    private LookupStatus lookup(final String fqdn) throws Exception {
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(fqdn, lookupStatus::complete);
+        return lookupStatus.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xbill.DNS.Rcode;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Test {@link NioTxtResolver} against a name server answering on the loopback interface
+ */
+public class NioTxtResolverTest extends AbstractServiceLocatorTestTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private FakeNameServer server;
+    private NioTxtResolver resolver;
+
+    @Before
+    public void init() throws Exception {
+        server = new FakeNameServer(RECORD_TXT);
+        resolver = new NioTxtResolver(200, 3, server.getAddress());
+    }
+
+    @After
+    public void close() throws Exception {
+        // null if the setup failed
+        if (resolver != null) {
+            resolver.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void resolvesTxtRecords() throws Exception {
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+        checkUrls(serviceLocator);
+    }
+
+    @Test
+    public void nonExistingNameHasNoTxtRecord() throws Exception {
+        server.rcode = Rcode.NXDOMAIN;
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup());
+    }
+
+    @Test
+    public void serverFailureIsError() throws Exception {
+        server.rcode = Rcode.SERVFAIL;
+
+        Assert.assertEquals(LookupStatus.ERROR, lookup());
+    }
+
+    @Test
+    public void lostQueryIsSentAgain() throws Exception {
+        server.dropQueries.set(2);
+
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+        Assert.assertEquals(3, server.udpQueries.get());
+    }
+
+    @Test
+    public void unansweredQueryIsError() throws Exception {
+        server.dropQueries.set(Integer.MAX_VALUE);
+
+        final CompletableFuture<Exception> error = new CompletableFuture<>();
+        resolver.resolve(FQDN, DIRECT, errorCallback(error));
+
+        Assert.assertTrue(error.get(5, TimeUnit.SECONDS) instanceof SocketTimeoutException);
+        Assert.assertEquals(3, server.udpQueries.get());
+    }
+
+    @Test
+    public void truncatedAnswerIsQueriedOverTcp() throws Exception {
+        server.truncate = true;
+
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+        checkUrls(serviceLocator);
+        Assert.assertEquals(1, server.udpQueries.get());
+        Assert.assertEquals(1, server.tcpQueries.get());
+    }
+
+    @Test
+    public void unansweredQueryIsSentToNextServer() throws Exception {
+        try (FakeNameServer otherServer = new FakeNameServer(RECORD_TXT)) {
+            otherServer.dropQueries.set(Integer.MAX_VALUE);
+            resolver.close();
+            resolver = new NioTxtResolver(200, 2, otherServer.getAddress(), server.getAddress());
+
+            Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+            Assert.assertEquals(1, otherServer.udpQueries.get());
+            Assert.assertEquals(1, server.udpQueries.get());
+        }
+    }
+
+    @Test
+    public void closeEndsPendingQueries() throws Exception {
+        server.dropQueries.set(Integer.MAX_VALUE);
+        resolver.close();
+        resolver = new NioTxtResolver(60_000, 1, server.getAddress());
+        final CompletableFuture<Exception> error = new CompletableFuture<>();
+        resolver.resolve(FQDN, DIRECT, errorCallback(error));
+
+        resolver.close();
+
+        Assert.assertNotNull(error.get(5, TimeUnit.SECONDS));
+        final CompletableFuture<Exception> errorAfterClose = new CompletableFuture<>();
+        resolver.resolve(FQDN, DIRECT, errorCallback(errorAfterClose));
+        Assert.assertNotNull(errorAfterClose.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledQueryIsNotSentAgain() throws Exception {
+        server.dropQueries.set(1);
+        final CompletableFuture<Exception> error = new CompletableFuture<>();
+
+        resolver.resolve(FQDN, DIRECT, errorCallback(error)).cancel();
+
+        Thread.sleep(700);
+        Assert.assertFalse(error.isDone());
+        Assert.assertTrue(server.udpQueries.get() <= 1);
+    }
+
+    @Test
+    public void failingCallbackOnSelectorThreadDoesNotStopResolving() throws Exception {
+        final Executor rejecting = command -> {
+            throw new RejectedExecutionException("shut down");
+        };
+        final CountDownLatch failed = new CountDownLatch(1);
+        resolver.resolve(FQDN, rejecting, throwingCallback(failed));
+        Assert.assertTrue(failed.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+    }
+
+    @Test
+    public void selectorThreadIsStartedAgainAfterItStopped() throws Exception {
+        final CountDownLatch failed = new CountDownLatch(1);
+        // the callback runs on the selector thread, its exception ends the thread
+        resolver.resolve(FQDN, DIRECT, throwingCallback(failed));
+        Assert.assertTrue(failed.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+    }
+
+    @Test
+    public void invalidNameIsError() throws Exception {
+        final CompletableFuture<Exception> error = new CompletableFuture<>();
+        resolver.resolve("invalid..fqdn", DIRECT, errorCallback(error));
+
+        Assert.assertNotNull(error.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, server.udpQueries.get());
+    }
+
+    @Test
+    public void resolvesManyNamesOverOneChannel() throws Exception {
+        final int count = 2000;
+        resolver.close();
+        resolver = new NioTxtResolver(1000, 3, server.getAddress());
+        final CountDownLatch done = new CountDownLatch(count);
+        final AtomicInteger answers = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        final TxtResolver.Callback callback = new TxtResolver.Callback() {
+
+            @Override
+            public void onAnswer(final TxtAnswer txtAnswer) {
+                if (txtAnswer.size() == 1) {
+                    answers.incrementAndGet();
+                }
+                done.countDown();
+            }
+
+            @Override
+            public void onError(final Exception e) {
+                errors.incrementAndGet();
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < count; i++) {
+            resolver.resolve("insurer" + i + ".test.fqdn", DIRECT, callback);
+        }
+
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, errors.get());
+        Assert.assertEquals(count, answers.get());
+    }
+
+    private LookupStatus lookup() throws Exception {
+        serviceLocator = new ResolverServiceLocator(resolver);
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, lookupStatus::complete);
+        return lookupStatus.get(5, TimeUnit.SECONDS);
+    }
+
+    private static TxtResolver.Callback throwingCallback(final CountDownLatch failed) {
+        return new TxtResolver.Callback() {
+
+            @Override
+            public void onAnswer(final TxtAnswer txtAnswer) {
+                failed.countDown();
+                throw new IllegalStateException("callback failed");
+            }
+
+            @Override
+            public void onError(final Exception e) {
+                failed.countDown();
+                throw new IllegalStateException("callback failed", e);
+            }
+        };
+    }
+
+    private static TxtResolver.Callback errorCallback(final CompletableFuture<Exception> error) {
+        return new TxtResolver.Callback() {
+
+            @Override
+            public void onAnswer(final TxtAnswer txtAnswer) {
+                error.complete(null);
+            }
+
+            @Override
+            public void onError(final Exception e) {
+                error.complete(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import static org.awaitility.Awaitility.await;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.awaitility.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Test {@link RefreshAheadPolicy}
+ */
+public class RefreshAheadPolicyTest extends AbstractServiceLocatorTestTest {
+
+    @Test
+    public void nextRefreshDelay() {
+        final RefreshAheadPolicy policy = new RefreshAheadPolicy(0.8, 0.1);
+        for (int i = 0; i < 1000; i++) {
+            final long delay = policy.nextRefreshDelay(100_000);
+            Assert.assertTrue(delay >= 72_000 && delay <= 88_000);
+        }
+        Assert.assertEquals(RefreshAheadPolicy.MIN_REFRESH_DELAY_MILLIS, policy.nextRefreshDelay(10));
+        Assert.assertEquals(RefreshAheadPolicy.MIN_REFRESH_DELAY_MILLIS, policy.nextRefreshDelay(-10));
+    }
+
+    @Test
+    public void withoutJitter() {
+        Assert.assertEquals(50_000, new RefreshAheadPolicy(0.5, 0).nextRefreshDelay(100_000));
+    }
+
+    @Test
+    public void nextRetryDelayDoublesUntilExpiry() {
+        final RefreshAheadPolicy policy = new RefreshAheadPolicy(0.5, 0.1);
+        Assert.assertEquals(RefreshAheadPolicy.MIN_REFRESH_DELAY_MILLIS, policy.nextRetryDelay(1, 100_000));
+        Assert.assertEquals(4 * RefreshAheadPolicy.MIN_REFRESH_DELAY_MILLIS, policy.nextRetryDelay(3, 100_000));
+        Assert.assertEquals(100_000, policy.nextRetryDelay(10, 100_000));
+        Assert.assertEquals(500, policy.nextRetryDelay(1, 500));
+        Assert.assertEquals(100_000, policy.nextRetryDelay(Integer.MAX_VALUE, 100_000));
+    }
+
+    @Test
+    public void failedRefreshIsRetriedBeforeExpiry() throws Exception {
+        final AtomicInteger queries = new AtomicInteger();
+        final ResolverServiceLocator locator = new ResolverServiceLocator((fqdn, executor, callback) -> {
+            if (queries.incrementAndGet() == 2) {
+                callback.onError(new IOException("network unreachable"));
+            } else {
+                final TxtAnswer txtAnswer = new TxtAnswer();
+                final byte[] blob = txtBlob(RECORD_TXT);
+                // refreshed after half of the TTL, the retry after the failed refresh is due before it expires
+                txtAnswer.add(blob, 0, blob.length, 4);
+                callback.onAnswer(txtAnswer);
+            }
+            return TxtResolver.Cancellable.NONE;
+        });
+        locator.setRefreshAheadPolicy(new RefreshAheadPolicy(0.5, 0));
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        locator.lookup(FQDN, lookupStatus -> latch.countDown());
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        await().atMost(Duration.FIVE_SECONDS).with().pollInterval(Duration.ONE_HUNDRED_MILLISECONDS).until(() -> queries.get() >= 3);
+        await().atMost(Duration.ONE_SECOND).until(() -> locator.getLookupStatus() == LookupStatus.SUCCESS);
+        Assert.assertNotNull(locator.endpointURLForInterface(ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        locator.setRefreshAheadPolicy(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidTtlFraction() {
+        new RefreshAheadPolicy(1, 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidJitterFraction() {
+        new RefreshAheadPolicy(0.5, -0.1);
+    }
+
+    @Test
+    public void refreshesInBackground() throws Exception {
+        final AtomicInteger queries = new AtomicInteger();
+        final ResolverServiceLocator locator = new ResolverServiceLocator((fqdn, executor, callback) -> {
+            queries.incrementAndGet();
+            final TxtAnswer txtAnswer = new TxtAnswer();
+            final byte[] blob = txtBlob(RECORD_TXT);
+            txtAnswer.add(blob, 0, blob.length, TTL);
+            callback.onAnswer(txtAnswer);
+            return TxtResolver.Cancellable.NONE;
+        });
+        // a refresh after 0.5 % of the TTL of 200 seconds is clamped to the shortest delay
+        locator.setRefreshAheadPolicy(new RefreshAheadPolicy(0.005, 0.1));
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        locator.lookup(FQDN, lookupStatus -> latch.countDown());
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        await().atMost(Duration.FIVE_SECONDS).until(() -> queries.get() >= 2);
+
+        locator.setRefreshAheadPolicy(null);
+        Thread.sleep(200);
+        final int queriesBefore = queries.get();
+        Thread.sleep(2 * RefreshAheadPolicy.MIN_REFRESH_DELAY_MILLIS);
+        Assert.assertEquals(queriesBefore, queries.get());
+        Assert.assertEquals(LookupStatus.SUCCESS, locator.getLookupStatus());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Test {@link ResolverExecutor}
+ */
+public class ResolverExecutorTest extends AbstractServiceLocatorTestTest {
+
+    private static final int LOOKUPS = 5000;
+    private static final int MAX_THREADS = 2;
+
+    @Test
+    public void soakLiveThreadCountStaysFlat() throws Exception {
+        final ThreadPoolExecutor executor = ResolverExecutor.newExecutor(MAX_THREADS, 8, 1);
+        final ResolverServiceLocator locator = newLocator();
+        locator.setExecutor(executor);
+        // only the resolver threads are counted
+        locator.setCallbackExecutor(Runnable::run);
+        final int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        for (int i = 0; i < LOOKUPS; i++) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            locator.lookup(FQDN, lookupStatus -> latch.countDown());
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(ManagementFactory.getThreadMXBean().getThreadCount() <= threadsBefore + MAX_THREADS);
+        }
+
+        Assert.assertEquals(LookupStatus.SUCCESS, locator.getLookupStatus());
+        Assert.assertTrue(executor.getLargestPoolSize() <= MAX_THREADS);
+        Assert.assertTrue("completed " + executor.getCompletedTaskCount(), executor.getCompletedTaskCount() >= LOOKUPS - 1);
+    }
+
+    @Test
+    public void idleThreadsAreReclaimed() throws Exception {
+        final ThreadPoolExecutor executor = ResolverExecutor.newExecutor(MAX_THREADS, 8, 1);
+        final ResolverServiceLocator locator = newLocator();
+        locator.setExecutor(executor);
+        final CountDownLatch latch = new CountDownLatch(1);
+        locator.lookup(FQDN, lookupStatus -> latch.countDown());
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getPoolSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(0, executor.getPoolSize());
+    }
+
+    @Test
+    public void fullQueueEndsLookupWithError() throws Exception {
+        final ThreadPoolExecutor executor = ResolverExecutor.newExecutor(1, 1, 1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {
+            // fills the queue
+        });
+        final ResolverServiceLocator locator = newLocator();
+        locator.setExecutor(executor);
+        locator.setCallbackExecutor(Runnable::run);
+        final AtomicReference<LookupStatus> receivedCallBack = new AtomicReference<>();
+
+        locator.lookup(FQDN, receivedCallBack::set);
+        blocker.countDown();
+
+        Assert.assertEquals(LookupStatus.ERROR, receivedCallBack.get());
+        Assert.assertFalse(locator.isRunning());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLimits() {
+        ResolverExecutor.configure(0, 1, 1);
+    }
+
+    /**
+     * Returns a locator whose resolver answers on the executor of the lookup, as the DNS backends do
+     */
+    private static ResolverServiceLocator newLocator() {
+        return new ResolverServiceLocator((fqdn, executor, callback) -> {
+            executor.execute(() -> {
+                final TxtAnswer txtAnswer = new TxtAnswer();
+                final byte[] blob = txtBlob(RECORD_TXT);
+                txtAnswer.add(blob, 0, blob.length, TTL);
+                callback.onAnswer(txtAnswer);
+            });
+            return TxtResolver.Cancellable.NONE;
+        });
+    }
+}
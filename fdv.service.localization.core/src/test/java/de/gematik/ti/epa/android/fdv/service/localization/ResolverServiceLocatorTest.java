@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * Test {@link ResolverServiceLocator}
+ */
+public class ResolverServiceLocatorTest extends AbstractServiceLocatorTestTest {
+
+    @Test
+    public void answer() throws Exception {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT);
+        txtAnswer.add(blob, 0, blob.length, 0x20000);
+        serviceLocator = new ResolverServiceLocator((fqdn, executor, callback) -> answer(executor, () -> callback.onAnswer(txtAnswer)));
+
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+        checkUrls(serviceLocator);
+        Assert.assertFalse(serviceLocator.isRunning());
+    }
+
+    @Test
+    public void answerWithoutRecords() throws Exception {
+        serviceLocator = new ResolverServiceLocator((fqdn, executor, callback) -> answer(executor, () -> callback.onAnswer(new TxtAnswer())));
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, lookup());
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, serviceLocator.getLookupStatus());
+    }
+
+    @Test
+    public void error() throws Exception {
+        serviceLocator = new ResolverServiceLocator(
+                (fqdn, executor, callback) -> answer(executor, () -> callback.onError(new IOException("network unreachable"))));
+
+        Assert.assertEquals(LookupStatus.ERROR, lookup());
+        Assert.assertEquals(LookupStatus.ERROR, serviceLocator.getLookupStatus());
+        Assert.assertFalse(serviceLocator.isRunning());
+    }
+
+    @Test
+    public void malformedAnswerIsError() throws Exception {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT);
+        txtAnswer.add(blob, 0, blob.length - 1, 0x20000);
+        final AtomicReference<TxtResolver.Callback> resolverCallback = new AtomicReference<>();
+        serviceLocator = new ResolverServiceLocator((fqdn, executor, callback) -> {
+            resolverCallback.set(callback);
+            return TxtResolver.Cancellable.NONE;
+        });
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, lookupStatus::complete);
+
+        try {
+            resolverCallback.get().onAnswer(txtAnswer);
+            Assert.fail("ServiceLocatorException expected");
+        } catch (final ServiceLocatorException e) {
+            // expected
+        }
+
+        Assert.assertEquals(LookupStatus.ERROR, lookupStatus.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(LookupStatus.ERROR, serviceLocator.getLookupStatus());
+    }
+
+    @Test
+    public void registryWithResolver() throws Exception {
+        final TxtResolver resolver = (fqdn, executor, callback) -> answer(executor, () -> callback.onAnswer(new TxtAnswer()));
+        final ServiceLocatorRegistry registry = new ServiceLocatorRegistry(resolver);
+
+        Assert.assertEquals(LookupStatus.MISSING_TXT_RECORD, registry.lookupAsync(FQDN).get(5, TimeUnit.SECONDS).getLookupStatus());
+    }
+
+    @Test
+    public void lookupTimeoutCancelsQuery() throws Exception {
+        final PendingResolver resolver = new PendingResolver();
+        serviceLocator = new ResolverServiceLocator(resolver);
+        serviceLocator.setLookupTimeoutMillis(50);
+
+        Assert.assertEquals(LookupStatus.ERROR, lookup());
+        Assert.assertEquals(1, resolver.cancelled.get());
+        Assert.assertFalse(serviceLocator.isRunning());
+
+        serviceLocator.lookup(FQDN, null);
+        Assert.assertEquals(2, resolver.queries.get());
+    }
+
+    @Test
+    public void cancelEndsLookupAndDropsLateAnswer() throws Exception {
+        final PendingResolver resolver = new PendingResolver();
+        serviceLocator = new ResolverServiceLocator(resolver);
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, lookupStatus::complete);
+
+        Assert.assertTrue(serviceLocator.cancel());
+
+        Assert.assertEquals(LookupStatus.ERROR, lookupStatus.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, resolver.cancelled.get());
+        Assert.assertFalse(serviceLocator.cancel());
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT);
+        txtAnswer.add(blob, 0, blob.length, TTL);
+        resolver.callback.get().onAnswer(txtAnswer);
+        Assert.assertEquals(LookupStatus.ERROR, serviceLocator.getLookupStatus());
+    }
+
+    @Test
+    public void supersededLookupCancelsQuery() throws Exception {
+        final PendingResolver resolver = new PendingResolver();
+        serviceLocator = new ResolverServiceLocator(resolver);
+        serviceLocator.lookup(FQDN, null);
+
+        serviceLocator.lookup("other." + FQDN, null);
+
+        Assert.assertEquals(2, resolver.queries.get());
+        Assert.assertEquals(1, resolver.cancelled.get());
+    }
+
+    @Test
+    public void registryLookupTimeoutFailsFuture() throws Exception {
+        final ServiceLocatorRegistry registry = new ServiceLocatorRegistry(new PendingResolver());
+        registry.setLookupTimeout(50, TimeUnit.MILLISECONDS);
+
+        try {
+            registry.lookupAsync(FQDN).get(5, TimeUnit.SECONDS);
+            Assert.fail("lookup must time out");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertEquals(LookupStatus.ERROR, registry.getLookupStatus(FQDN));
+        Assert.assertFalse(registry.cancel(FQDN));
+    }
+
+    private static TxtResolver.Cancellable answer(final Executor executor, final Runnable answer) {
+        executor.execute(answer);
+        return TxtResolver.Cancellable.NONE;
+    }
+
+    /**
+     * Resolver that never answers by itself
+     */
+    private static final class PendingResolver implements TxtResolver {
+
+        private final AtomicInteger queries = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+        private final AtomicReference<Callback> callback = new AtomicReference<>();
+
+        @Override
+        public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+            queries.incrementAndGet();
+            this.callback.set(callback);
+            return cancelled::incrementAndGet;
+        }
+    }
+
+    private LookupStatus lookup() throws Exception {
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, lookupStatus::complete);
+        return lookupStatus.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Test {@link RetryPolicy}
+ */
+public class RetryPolicyTest extends AbstractServiceLocatorTestTest {
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    @Test
+    public void backoffDoublesUpToMaximum() {
+        final RetryPolicy policy = new RetryPolicy(10, 100, 1000, 0);
+
+        Assert.assertEquals(100, policy.nextBackoff(1));
+        Assert.assertEquals(200, policy.nextBackoff(2));
+        Assert.assertEquals(800, policy.nextBackoff(4));
+        Assert.assertEquals(1000, policy.nextBackoff(5));
+        Assert.assertEquals(1000, policy.nextBackoff(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void backoffWithJitter() {
+        final RetryPolicy policy = new RetryPolicy(10, 1000, 1000, 0.2);
+        for (int i = 0; i < 1000; i++) {
+            final long backoff = policy.nextBackoff(3);
+            Assert.assertTrue(backoff >= 800 && backoff <= 1200);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMaxAttempts() {
+        new RetryPolicy(0, 100, 1000, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMaxBackoff() {
+        new RetryPolicy(3, 100, 10, 0);
+    }
+
+    @Test
+    public void failedQueryIsSentAgain() throws Exception {
+        serviceLocator = failingLocator(2);
+        serviceLocator.setRetryPolicy(new RetryPolicy(3, 10, 100, 0));
+
+        final long start = System.nanoTime();
+        Assert.assertEquals(LookupStatus.SUCCESS, lookup());
+
+        Assert.assertEquals(3, queries.get());
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10 + 20));
+        checkUrls(serviceLocator);
+    }
+
+    @Test
+    public void lastFailedAttemptIsError() throws Exception {
+        serviceLocator = failingLocator(Integer.MAX_VALUE);
+        serviceLocator.setRetryPolicy(new RetryPolicy(2, 10, 10, 0));
+
+        Assert.assertEquals(LookupStatus.ERROR, lookup());
+
+        Assert.assertEquals(2, queries.get());
+        Assert.assertFalse(serviceLocator.isRunning());
+    }
+
+    @Test
+    public void lookupIsRunningDuringBackoff() throws Exception {
+        serviceLocator = failingLocator(1);
+        serviceLocator.setRetryPolicy(new RetryPolicy(2, 60_000, 60_000, 0));
+        serviceLocator.lookup(FQDN, null);
+
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, serviceLocator.getLookupStatus());
+        final CompletableFuture<LookupStatus> joined = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, joined::complete);
+        Assert.assertEquals(1, queries.get());
+
+        Assert.assertTrue(serviceLocator.cancel());
+        Assert.assertEquals(LookupStatus.ERROR, joined.get(5, TimeUnit.SECONDS));
+    }
+
+    private ResolverServiceLocator failingLocator(final int failures) {
+        return new ResolverServiceLocator((fqdn, executor, callback) -> {
+            if (queries.incrementAndGet() <= failures) {
+                callback.onError(new IOException("network unreachable"));
+            } else {
+                final TxtAnswer txtAnswer = new TxtAnswer();
+                final byte[] blob = txtBlob(RECORD_TXT);
+                txtAnswer.add(blob, 0, blob.length, TTL);
+                callback.onAnswer(txtAnswer);
+            }
+            return TxtResolver.Cancellable.NONE;
+        });
+    }
+
+    private LookupStatus lookup() throws Exception {
+        final CompletableFuture<LookupStatus> lookupStatus = new CompletableFuture<>();
+        serviceLocator.lookup(FQDN, lookupStatus::complete);
+        return lookupStatus.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import static org.awaitility.Awaitility.await;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.awaitility.Duration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Test {@link ServiceLocatorRegistry}
+ */
+public class ServiceLocatorRegistryTest extends AbstractServiceLocatorTestTest {
+
+    private static final List<String> FQDNS = Arrays.asList("kk1.test.fqdn", "kk2.test.fqdn", "kk3.test.fqdn");
+    private ServiceLocatorRegistry registry;
+    private Map<String, LookupStatus> receivedCallBacks;
+
+    @Before
+    public void init() {
+        receivedCallBacks = new ConcurrentHashMap<>();
+        final TxtResolver resolver = (fqdn, executor, callback) -> {
+            executor.execute(() -> {
+                final TxtAnswer txtAnswer = new TxtAnswer();
+                final byte[] blob = txtBlob(RECORD_TXT);
+                txtAnswer.add(blob, 0, blob.length, TTL);
+                callback.onAnswer(txtAnswer);
+            });
+            return TxtResolver.Cancellable.NONE;
+        };
+        registry = new ServiceLocatorRegistry(() -> new ResolverServiceLocator(resolver),
+                ResolverExecutor.newExecutor(2, ResolverExecutor.DEFAULT_QUEUE_CAPACITY, 1));
+    }
+
+    @Test
+    public void lookupAll() {
+        registry.lookupAll(FQDNS, receivedCallBacks::put);
+        await().atMost(Duration.FIVE_SECONDS).with().pollInterval(Duration.ONE_HUNDRED_MILLISECONDS).until(() -> receivedCallBacks.size() == FQDNS.size());
+
+        for (final String fqdn : FQDNS) {
+            Assert.assertEquals(LookupStatus.SUCCESS, receivedCallBacks.get(fqdn));
+            Assert.assertEquals(LookupStatus.SUCCESS, registry.getLookupStatus(fqdn));
+            Assert.assertEquals("1.2.276.0.76.3.1.91", registry.getHomeCommunityId(fqdn));
+            Assert.assertEquals("https://" + fqdn + ":443/docv/I_Account_Management_Insurant",
+                    registry.endpointURLForInterface(fqdn, ServiceInterfaceName.I_ACCOUNT_MANAGEMENT_INSURANT).toString());
+        }
+        Assert.assertEquals(FQDNS.size(), registry.getFqdns().size());
+    }
+
+    @Test
+    public void lookupAsync() throws Exception {
+        final LookupResult lookupResult = registry.lookupAsync(FQDN).get(5, TimeUnit.SECONDS);
+
+        Assert.assertTrue(lookupResult.isSuccess());
+        Assert.assertEquals(FQDN, lookupResult.getFqdn());
+        Assert.assertEquals("1.2.276.0.76.3.1.91", lookupResult.getHomeCommunityId());
+        Assert.assertEquals(registry.endpointURLForInterface(FQDN, ServiceInterfaceName.I_ACCOUNT_MANAGEMENT_INSURANT),
+                lookupResult.getEndpointURL(ServiceInterfaceName.I_ACCOUNT_MANAGEMENT_INSURANT));
+        Assert.assertEquals(ServiceInterfaceName.values().length, lookupResult.getEndpointURLs().size());
+    }
+
+    @Test
+    public void lookupAsyncTimesOut() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        final ServiceLocatorRegistry controlledRegistry = new ServiceLocatorRegistry(() -> locator, null);
+        final CompletableFuture<LookupResult> future = controlledRegistry.lookupAsync(FQDN, 50, TimeUnit.MILLISECONDS);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("lookup must time out");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 0x20000));
+        Assert.assertEquals(LookupStatus.SUCCESS, controlledRegistry.getLookupStatus(FQDN));
+    }
+
+    @Test
+    public void cancelledLookupAsyncStillUpdatesEntry() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        final ServiceLocatorRegistry controlledRegistry = new ServiceLocatorRegistry(() -> locator, null);
+        final CompletableFuture<LookupResult> cancelled = controlledRegistry.lookupAsync(FQDN);
+        final CompletableFuture<LookupResult> joined = controlledRegistry.lookupAsync(FQDN);
+
+        Assert.assertTrue(cancelled.cancel(false));
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 0x20000));
+
+        Assert.assertTrue(joined.get(5, TimeUnit.SECONDS).isSuccess());
+        Assert.assertEquals(1, locator.getResolutionCount());
+        Assert.assertNotNull(controlledRegistry.endpointURLForInterface(FQDN, ServiceInterfaceName.I_ACCOUNT_MANAGEMENT_INSURANT));
+    }
+
+    @Test
+    public void cancelledLookupAsyncIsDetachedFromLookup() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        final ServiceLocatorRegistry controlledRegistry = new ServiceLocatorRegistry(() -> locator, null);
+        final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+        controlledRegistry.setCallbackExecutor(tasks::add);
+        final CompletableFuture<LookupResult> cancelled = controlledRegistry.lookupAsync(FQDN);
+
+        Assert.assertTrue(cancelled.cancel(false));
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 0x20000));
+
+        Assert.assertTrue(tasks.isEmpty());
+        Assert.assertEquals(LookupStatus.SUCCESS, controlledRegistry.getLookupStatus(FQDN));
+    }
+
+    @Test
+    public void lookupAsyncResultIsTakenWhenLookupEnds() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        final ServiceLocatorRegistry controlledRegistry = new ServiceLocatorRegistry(() -> locator, null);
+        final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+        controlledRegistry.setCallbackExecutor(tasks::add);
+        final CompletableFuture<LookupResult> future = controlledRegistry.lookupAsync(FQDN);
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 0x20000));
+
+        // the entry changes before the callback executor delivers the result
+        controlledRegistry.lookup(FQDN, null);
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT.replace("hcid=1.2.276.0.76.3.1.91", "hcid=1.2.276.0.76.3.1.92"), 0x20000));
+        Assert.assertEquals("1.2.276.0.76.3.1.92", controlledRegistry.getHomeCommunityId(FQDN));
+        tasks.get(0).run();
+
+        Assert.assertEquals("1.2.276.0.76.3.1.91", future.get(5, TimeUnit.SECONDS).getHomeCommunityId());
+    }
+
+    @Test
+    public void callbackExecutorOfRegistryCompletesLookups() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        final ServiceLocatorRegistry controlledRegistry = new ServiceLocatorRegistry(() -> locator, null);
+        final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+        controlledRegistry.setCallbackExecutor(tasks::add);
+        final CompletableFuture<LookupResult> future = controlledRegistry.lookupAsync(FQDN);
+        controlledRegistry.lookup(FQDN, lookupStatus -> receivedCallBacks.put(FQDN, lookupStatus));
+
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 0x20000));
+
+        Assert.assertEquals(1, tasks.size());
+        Assert.assertFalse(future.isDone());
+        tasks.get(0).run();
+        Assert.assertTrue(future.get(5, TimeUnit.SECONDS).isSuccess());
+        Assert.assertEquals(LookupStatus.SUCCESS, receivedCallBacks.get(FQDN));
+    }
+
+    @Test
+    public void subscriptionEndsWithRemove() throws Exception {
+        final ControlledServiceLocator locator = new ControlledServiceLocator();
+        final ServiceLocatorRegistry controlledRegistry = new ServiceLocatorRegistry(() -> locator, null);
+        final List<GatewayTableUpdate> updates = new CopyOnWriteArrayList<>();
+        final GatewayTableSubscription subscription = controlledRegistry.subscribe(FQDN, updates::add);
+        controlledRegistry.lookup(FQDN, null);
+        locator.answer(ControlledServiceLocator.records(RECORD_TXT, 0x20000));
+
+        controlledRegistry.remove(FQDN);
+
+        Assert.assertEquals(1, updates.size());
+        Assert.assertEquals(FQDN, updates.get(0).getFqdn());
+        Assert.assertTrue(subscription.isCancelled());
+    }
+
+    @Test
+    public void unknownFqdn() {
+        Assert.assertEquals(LookupStatus.NOT_STARTED, registry.getLookupStatus("unknown.test.fqdn"));
+        Assert.assertNull(registry.endpointURLForInterface("unknown.test.fqdn", ServiceInterfaceName.I_GET_KEY_SGD_1));
+        Assert.assertNull(registry.getHomeCommunityId("unknown.test.fqdn"));
+    }
+
+    @Test
+    public void fqdnIsCaseInsensitive() {
+        registry.lookup(FQDN, lookupStatus -> receivedCallBacks.put(FQDN, lookupStatus));
+        await().atMost(Duration.FIVE_SECONDS).with().pollInterval(Duration.ONE_HUNDRED_MILLISECONDS).until(() -> receivedCallBacks.containsKey(FQDN));
+
+        Assert.assertEquals(LookupStatus.SUCCESS, registry.getLookupStatus(FQDN.toUpperCase()));
+        registry.remove(FQDN.toLowerCase());
+        Assert.assertTrue(registry.getFqdns().isEmpty());
+    }
+
+    @Test
+    public void warmUpPreparesResolverInBackground() throws Exception {
+        final CompletableFuture<Thread> warmedUpOn = new CompletableFuture<>();
+        final ServiceLocatorRegistry warmRegistry = new ServiceLocatorRegistry(new TxtResolver() {
+
+            @Override
+            public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+                return Cancellable.NONE;
+            }
+
+            @Override
+            public void warmUp() {
+                warmedUpOn.complete(Thread.currentThread());
+            }
+        });
+
+        warmRegistry.warmUp();
+
+        Assert.assertNotSame(Thread.currentThread(), warmedUpOn.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(warmRegistry.getFqdns().isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.net.InetAddress;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+
+/**
+ * Test {@link TxtAnswer}
+ */
+public class TxtAnswerTest extends AbstractServiceLocatorTestTest {
+
+    @Test
+    public void ofSkipsOtherRecordTypes() throws Exception {
+        final Name name = Name.fromString(FQDN_ABSOLUTE);
+        final Record[] records = { new ARecord(name, DClass.IN, 60, InetAddress.getByName("127.0.0.1")),
+                Record.fromString(name, TYPE_TXT, DClass.IN, 3600, RECORD_TXT, name) };
+
+        final TxtAnswer txtAnswer = TxtAnswer.of(records);
+
+        Assert.assertEquals(1, txtAnswer.size());
+        Assert.assertEquals(3600, txtAnswer.getTtl(0));
+        Assert.assertEquals("/docv", txtAnswer.toGatewayModulePaths().get("docv").getPath());
+    }
+
+    @Test
+    public void keepsAllRecordsBeyondInitialCapacity() throws Exception {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        for (int i = 0; i < 10; i++) {
+            final byte[] blob = txtBlob("\"sgd" + i + "=/sgd" + i + "\"");
+            txtAnswer.add(blob, 0, blob.length, i);
+        }
+
+        Assert.assertEquals(10, txtAnswer.size());
+        Assert.assertEquals(9, txtAnswer.getTtl(9));
+        Assert.assertEquals(10, txtAnswer.toGatewayModulePaths().size());
+        Assert.assertEquals("/sgd9", txtAnswer.toGatewayModulePaths().get("sgd9").getPath());
+    }
+}
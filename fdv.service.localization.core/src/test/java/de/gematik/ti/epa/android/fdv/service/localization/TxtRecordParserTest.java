@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SOARecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.TXTRecord;
+import org.xbill.DNS.Type;
+
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * Test {@link TxtRecordParser}
+ */
+public class TxtRecordParserTest extends AbstractServiceLocatorTestTest {
+
+    @Test
+    public void parsesAnswerSectionOfMessage() throws Exception {
+        final Name name = Name.fromString(FQDN_ABSOLUTE);
+        final Message message = Message.newQuery(Record.newRecord(name, Type.TXT, DClass.IN));
+        message.addRecord(Record.fromString(name, TYPE_TXT, DClass.IN, 0x20000, RECORD_TXT, name), Section.ANSWER);
+        message.addRecord(new ARecord(name, DClass.IN, 60, InetAddress.getByName("127.0.0.1")), Section.ANSWER);
+
+        final Map<String, GatewayModulePathType> values = TxtRecordParser.parseMessage(message.toWire());
+
+        Assert.assertEquals(8, values.size());
+        Assert.assertEquals("/docv", values.get("docv").getPath());
+        Assert.assertEquals("1.2.276.0.76.3.1.91", values.get("hcid").getPath());
+        Assert.assertFalse(values.containsKey("txtvers"));
+    }
+
+    @Test
+    public void messageWithoutAnswerIsEmpty() throws Exception {
+        final Message message = Message.newQuery(Record.newRecord(Name.fromString(FQDN_ABSOLUTE), Type.TXT, DClass.IN));
+
+        Assert.assertTrue(TxtRecordParser.parseMessage(message.toWire()).isEmpty());
+    }
+
+    @Test
+    public void readsNegativeTtlOfSoaRecord() throws Exception {
+        final Name name = Name.fromString(FQDN_ABSOLUTE);
+        final Name zone = Name.fromString("fqdn.");
+        final Message message = Message.newQuery(Record.newRecord(name, Type.TXT, DClass.IN));
+        message.addRecord(new SOARecord(zone, DClass.IN, 3600, Name.fromString("ns.fqdn."), Name.fromString("hostmaster.fqdn."), 1, 7200, 900,
+                1209600, 300), Section.AUTHORITY);
+
+        Assert.assertEquals(300, TxtAnswer.fromMessage(message.toWire()).getNegativeTtl());
+        Assert.assertEquals(300, TxtAnswer.of(new Record[0], message.getSectionArray(Section.AUTHORITY)).getNegativeTtl());
+        Assert.assertEquals(-1, TxtAnswer.fromMessage(Message.newQuery(Record.newRecord(name, Type.TXT, DClass.IN)).toWire()).getNegativeTtl());
+    }
+
+    @Test
+    public void keepsSpacesAndEqualSignsInValues() throws Exception {
+        final Map<String, GatewayModulePathType> values = parse(" docv=/path with spaces ", "authn=/a=b", "no separator", "=empty");
+
+        Assert.assertEquals("/path with spaces", values.get("docv").getPath());
+        Assert.assertEquals("/a=b", values.get("authn").getPath());
+        Assert.assertEquals("empty", values.get("").getPath());
+        Assert.assertEquals(3, values.size());
+    }
+
+    @Test
+    public void parsesDnsjavaRecordData() throws Exception {
+        final Name name = Name.fromString(FQDN_ABSOLUTE);
+        final byte[] rdata = new TXTRecord(name, DClass.IN, 60, Arrays.asList("txtvers=1", "sgd1=/sgd1")).rdataToWireCanonical();
+        final Map<String, GatewayModulePathType> values = new HashMap<>();
+
+        TxtRecordParser.parseRdata(rdata, 0, rdata.length, 60, values);
+
+        Assert.assertEquals("/sgd1", values.get("sgd1").getPath());
+    }
+
+    @Test(expected = ServiceLocatorException.class)
+    public void wrongTxtVersion() throws Exception {
+        parse("txtvers=2", "docv=/docv");
+    }
+
+    @Test(expected = IOException.class)
+    public void characterStringExceedingRecord() throws Exception {
+        final byte[] blob = txtBlob("\"docv=/docv\"");
+        TxtRecordParser.parseRdata(blob, 0, blob.length - 1, 60, new HashMap<>());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedMessage() throws Exception {
+        final Name name = Name.fromString(FQDN_ABSOLUTE);
+        final Message message = new Message();
+        message.addRecord(Record.fromString(name, TYPE_TXT, DClass.IN, 0x20000, RECORD_TXT, name), Section.ANSWER);
+        final byte[] wire = message.toWire();
+
+        TxtRecordParser.parseMessage(Arrays.copyOf(wire, wire.length - 5));
+    }
+
+    private static Map<String, GatewayModulePathType> parse(final String... characterStrings) throws IOException {
+        final StringBuilder recordTxt = new StringBuilder();
+        for (final String characterString : characterStrings) {
+            recordTxt.append('"').append(characterString).append("\" ");
+        }
+        final byte[] blob = txtBlob(recordTxt.toString());
+        final Map<String, GatewayModulePathType> values = new HashMap<>();
+        TxtRecordParser.parseRdata(blob, 0, blob.length, 60, values);
+        return values;
+    }
+}
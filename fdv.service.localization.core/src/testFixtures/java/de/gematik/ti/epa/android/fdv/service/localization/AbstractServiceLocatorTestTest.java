@@ -16,26 +16,16 @@
 
 package de.gematik.ti.epa.android.fdv.service.localization;
 
-import static org.mockito.ArgumentMatchers.anyString;
-
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.Assert;
-import org.minidns.dnsmessage.DnsMessage;
-import org.minidns.hla.DnssecResolverApi;
-import org.minidns.hla.ResolverResult;
-import org.minidns.record.Data;
-import org.minidns.record.Record;
-import org.minidns.record.TXT;
-import org.mockito.ArgumentMatchers;
-import org.mockito.Mockito;
 
 import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
 import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
@@ -98,29 +88,17 @@ abstract class AbstractServiceLocatorTestTest {
         Assert.assertEquals("https://My.test.fqdn:443/sgd2", sgd2Url.toString());
     }
 
-    protected void initServiceLocatorV9(final AbstractServiceLocator serviceLocator, boolean withRecords)
-            throws ReflectiveOperationException, java.io.IOException {
-        Field dnssecResolverApi = ServiceLocatorV9.class.getDeclaredField("dnssecResolverApi");
-        dnssecResolverApi.setAccessible(true);
-        DnssecResolverApi dnssecResolverApiMock = Mockito.mock(DnssecResolverApi.class);
-        dnssecResolverApi.set(serviceLocator, dnssecResolverApiMock);
-
-        ResolverResult<TXT> resultTxt = Mockito.mock(ResolverResult.class);
-        Set<TXT> resultTxtAnswers = new HashSet<>();
-        if (withRecords) {
-            TXT txt = Mockito.mock(TXT.class);
-            Mockito.when(txt.getText()).thenReturn(RECORD_TXT);
-            resultTxtAnswers.add(txt);
+    /**
+     * Returns the wire format of a TXT record given in presentation format, i.e. quoted character-strings
+     */
+    protected static byte[] txtBlob(final String recordTxt) {
+        final ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        final Matcher matcher = Pattern.compile("\"([^\"]*)\"").matcher(recordTxt);
+        while (matcher.find()) {
+            final byte[] characterString = matcher.group(1).getBytes(StandardCharsets.UTF_8);
+            blob.write(characterString.length);
+            blob.write(characterString, 0, characterString.length);
         }
-        Mockito.when(resultTxt.getAnswers()).thenReturn(resultTxtAnswers);
-        DnsMessage dnsMessage = Mockito.mock(DnsMessage.class);
-        List<Record<? extends Data>> additionalSection = new ArrayList<>();
-
-        Record record = Mockito.mock(Record.class);
-        setFinalField(Record.class, "ttl", TTL, record);
-        additionalSection.add(record);
-        setFinalField(DnsMessage.class, "additionalSection", additionalSection, dnsMessage);
-        Mockito.when(resultTxt.getRawAnswer()).thenReturn(dnsMessage);
-        Mockito.when(dnssecResolverApiMock.resolve(anyString(), ArgumentMatchers.<Class<TXT>> any())).thenReturn(resultTxt);
+        return blob.toByteArray();
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+
+/**
+ * Service locator whose lookups are answered by the test on the calling thread, which also gets the callbacks
+ */
+class ControlledServiceLocator extends AbstractServiceLocator {
+    private final List<Consumer<LookupStatus>> resolutions = new CopyOnWriteArrayList<>();
+
+    ControlledServiceLocator() {
+        setCallbackExecutor(Runnable::run);
+    }
+
+    static Record[] records(final String recordTxt, final long ttl) throws IOException {
+        final Name current = Name.fromString(AbstractServiceLocatorTestTest.FQDN_ABSOLUTE);
+        return new Record[] { Record.fromString(current, AbstractServiceLocatorTestTest.TYPE_TXT, DClass.ANY, ttl, recordTxt, current) };
+    }
+
+    @Override
+    protected void doResolve(final String fqdn, final ThreadPoolExecutor executor, final Consumer<LookupStatus> callback) {
+        resolutions.add(callback);
+    }
+
+    int getResolutionCount() {
+        return resolutions.size();
+    }
+
+    void answer(final Record[] records) {
+        answer(resolutions.size() - 1, records);
+    }
+
+    void answer(final int resolution, final Record[] records) {
+        final Consumer<LookupStatus> callback = resolutions.get(resolution);
+        handleAnswer(records, callback);
+        answerCallback(callback);
+    }
+
+    void answer(final int resolution, final TxtAnswer txtAnswer) throws IOException {
+        final Consumer<LookupStatus> callback = resolutions.get(resolution);
+        handleAnswer(txtAnswer, callback);
+        answerCallback(callback);
+    }
+
+    void fail() {
+        final Consumer<LookupStatus> callback = resolutions.get(resolutions.size() - 1);
+        handleError(callback);
+        answerCallback(callback);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock that stands still until the test advances it, so TTLs expire deterministically
+ */
+class VirtualClock implements MonotonicClock {
+    private final AtomicLong millis = new AtomicLong(1_000_000);
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    void advance(final long duration, final TimeUnit unit) {
+        millis.addAndGet(unit.toMillis(duration));
+    }
+}
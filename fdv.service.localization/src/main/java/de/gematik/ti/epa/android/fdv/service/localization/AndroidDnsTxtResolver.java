@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jetbrains.annotations.NotNull;
+import org.xbill.DNS.Type;
+
+import android.annotation.TargetApi;
+import android.net.DnsResolver;
+import android.os.CancellationSignal;
+
+import de.gematik.ti.epa.fdv.service.localization.exceptions.ServiceLocatorException;
+
+/**
+ * Resolver querying the TXT records with the {@link DnsResolver} of Android 10 and above
+ */
+@TargetApi(29)
+final class AndroidDnsTxtResolver implements TxtResolver {
+
+    @Override
+    public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+        final DnsResolver resolver = DnsResolver.getInstance();
+        final DnsResolver.Callback<? super byte[]> resolverCallback = initializeResolverCallback(callback);
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        resolver.rawQuery(null, fqdn, DnsResolver.CLASS_IN, Type.TXT, DnsResolver.FLAG_EMPTY, command -> executeCallback(executor, command),
+                cancellationSignal, resolverCallback);
+        return cancellationSignal::cancel;
+    }
+
+    private static void executeCallback(final Executor executor, final Runnable command) {
+        try {
+            executor.execute(command);
+        } catch (final RejectedExecutionException e) {
+            // a full or replaced executor must not swallow the answer, it is handled on the thread of the DnsResolver instead
+            command.run();
+        }
+    }
+
+    @NotNull
+    static DnsResolver.Callback<? super byte[]> initializeResolverCallback(final Callback callback) {
+        return new DnsResolver.Callback<byte[]>() {
+
+            @Override
+            public void onAnswer(final byte[] bytes, final int i) {
+                final TxtAnswer txtAnswer;
+                try {
+                    txtAnswer = TxtAnswer.fromMessage(bytes);
+                } catch (final IOException e) {
+                    callback.onError(e);
+                    throw new ServiceLocatorException("Error on create records from resolve " + "object" + e.getMessage(), e);
+                }
+                callback.onAnswer(txtAnswer);
+            }
+
+            @Override
+            public void onError(final DnsResolver.DnsException e) {
+                callback.onError(e);
+            }
+
+        };
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import android.os.SystemClock;
+
+/**
+ * Clock of the Android platform, registered as {@link MonotonicClock} service. Unlike {@link System#nanoTime()} on Android it keeps running
+ * while the device sleeps, so TTLs expire in real time.
+ */
+public final class ElapsedRealtimeClock implements MonotonicClock {
+
+    @Override
+    public long millis() {
+        return SystemClock.elapsedRealtime();
+    }
+}
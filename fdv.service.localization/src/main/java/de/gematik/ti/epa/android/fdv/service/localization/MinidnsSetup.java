@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import org.minidns.dnsserverlookup.android21.AndroidUsingLinkProperties;
+import org.minidns.hla.DnssecResolverApi;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Trace;
+import android.util.Log;
+
+/**
+ * Sets minidns up once per process, on the thread of the first query or warm-up: the DNS servers of the current network are found by the
+ * link properties of the application context, which needs reflection, and the DNSSEC resolver loads its trust anchors
+ */
+final class MinidnsSetup {
+
+    private static final String TAG = "ServiceLocator";
+
+    private static final DnssecResolverApi DNSSEC_RESOLVER_API = setup();
+
+    private MinidnsSetup() {
+        // static access only
+    }
+
+    /**
+     * Returns the DNSSEC resolver of minidns, set up on the first call
+     *
+     * @return DNSSEC resolver
+     */
+    static DnssecResolverApi getDnssecResolverApi() {
+        return DNSSEC_RESOLVER_API;
+    }
+
+    private static DnssecResolverApi setup() {
+        Trace.beginSection("ESL4A minidns setup");
+        try {
+            setupLinkProperties();
+            return MinidnsTxtResolver.newDnssecResolverApi();
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Lets minidns find the DNS servers of the current network by the link properties of the application context
+     */
+    private static void setupLinkProperties() {
+        Context applicationContext = null;
+
+        try {
+            applicationContext = getApplicationUsingReflection1().getApplicationContext();
+            Log.d(TAG, "Get applicationContext successful");
+        } catch (Exception e) {
+            Log.d(TAG, "Get applicationContext using Reflection failed, try other way.");
+        }
+        if (applicationContext == null) {
+            try {
+                applicationContext = getApplicationUsingReflection2().getApplicationContext();
+                Log.d(TAG, "Get applicationContext on second way was successful");
+            } catch (Exception e) {
+                Log.d(TAG, "Get applicationContext using Reflection failed on second try.");
+            }
+        }
+        if (applicationContext != null) {
+            AndroidUsingLinkProperties.setup(applicationContext);
+        } else {
+            Log.e(TAG, "ServiceLocator for Android above API 29 could not initialize with application context. You can initialize with "
+                    + "'AndroidUsingLinkProperties.setup(applicationContext);' before call lookup()");
+        }
+    }
+
+    private static Application getApplicationUsingReflection1() throws Exception {
+        return (Application) Class.forName("android.app.ActivityThread").getMethod("currentApplication").invoke(null, (Object[]) null);
+    }
+
+    private static Application getApplicationUsingReflection2() throws Exception {
+        return (Application) Class.forName("android.app.AppGlobals").getMethod("getInitialApplication").invoke(null, (Object[]) null);
+    }
+}
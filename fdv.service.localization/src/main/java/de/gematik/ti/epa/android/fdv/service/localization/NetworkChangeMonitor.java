@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.net.InetAddress;
+import java.util.List;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
+
+/**
+ * include::{userguide}/ESL4A_Overview.adoc[tag=NetworkChangeMonitor]
+ */
+public final class NetworkChangeMonitor {
+
+    private final ConnectivityManager connectivityManager;
+    private final Runnable onNetworkChanged;
+    private final ConnectivityManager.NetworkCallback networkCallback = new DefaultNetworkCallback();
+    private boolean started;
+    private boolean seen;
+    private Network network;
+    private List<InetAddress> dnsServers;
+
+    /**
+     * Constructor, the monitor listens once it is started
+     *
+     * @param context
+     *            context to get the {@link ConnectivityManager} from, e.g. the application context
+     * @param registry
+     *            registry whose entries are resolved again on the new network, see {@link ServiceLocatorRegistry#networkChanged()}
+     */
+    public NetworkChangeMonitor(final Context context, final ServiceLocatorRegistry registry) {
+        this((ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE), registry::networkChanged);
+    }
+
+    NetworkChangeMonitor(final ConnectivityManager connectivityManager, final Runnable onNetworkChanged) {
+        this.connectivityManager = connectivityManager;
+        this.onNetworkChanged = onNetworkChanged;
+    }
+
+    /**
+     * Starts listening for changes of the default network. The network the device is connected to at this moment is no change.
+     */
+    public synchronized void start() {
+        if (!started) {
+            connectivityManager.registerDefaultNetworkCallback(networkCallback);
+            started = true;
+        }
+    }
+
+    /**
+     * Stops listening, e.g. when the app no longer needs the entries
+     */
+    public synchronized void stop() {
+        if (started) {
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+            started = false;
+            seen = false;
+            network = null;
+            dnsServers = null;
+        }
+    }
+
+    /**
+     * Handles the default network or its DNS servers reported by the system
+     *
+     * @param newNetwork
+     *            default network
+     * @param newDnsServers
+     *            DNS servers of the link of the network, null if not reported with this event
+     */
+    void onDefaultNetwork(final Network newNetwork, final List<InetAddress> newDnsServers) {
+        final boolean changed;
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            final boolean otherNetwork = !newNetwork.equals(network);
+            // the first network reported after start is the one the entries were resolved on
+            changed = seen && (otherNetwork || newDnsServers != null && dnsServers != null && !newDnsServers.equals(dnsServers));
+            seen = true;
+            if (otherNetwork) {
+                dnsServers = null;
+            }
+            network = newNetwork;
+            if (newDnsServers != null) {
+                dnsServers = newDnsServers;
+            }
+        }
+        if (changed) {
+            onNetworkChanged.run();
+        }
+    }
+
+    /**
+     * Receives the events of the default network, on a thread of the system
+     */
+    private final class DefaultNetworkCallback extends ConnectivityManager.NetworkCallback {
+
+        @Override
+        public void onAvailable(final Network availableNetwork) {
+            onDefaultNetwork(availableNetwork, null);
+        }
+
+        @Override
+        public void onLinkPropertiesChanged(final Network changedNetwork, final LinkProperties linkProperties) {
+            onDefaultNetwork(changedNetwork, linkProperties.getDnsServers());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import java.util.concurrent.Executor;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Resolver of the Android platform, registered as {@link TxtResolver} service: the {@link android.net.DnsResolver} on Android 10 and above,
+ * the DNSSEC resolver of minidns below. The backend is selected on first use, so only its classes are loaded.
+ */
+public final class PlatformTxtResolver implements TxtResolver {
+
+    private static final long NO_HEDGING = -1;
+
+    private final long hedgeDelayMillis;
+    private volatile TxtResolver resolver;
+
+    /**
+     * Constructor
+     */
+    public PlatformTxtResolver() {
+        hedgeDelayMillis = NO_HEDGING;
+    }
+
+    /**
+     * Constructor for a resolver hedging slow answers: on Android 10 and above the {@link android.net.DnsResolver} and the DNSSEC resolver of
+     * minidns race each other in a {@link HedgedTxtResolver}. Below, minidns is the only backend and queried alone. The DnsResolver does not
+     * validate DNSSEC and wins the race whenever it answers first, so on Android 10 and above the answers are not DNSSEC validated, as with
+     * the resolver without hedging.
+     *
+     * @param hedgeDelayMillis
+     *            time to wait for the answer of the faster backend before the other one is queried as well, 0 to query both at once
+     */
+    public PlatformTxtResolver(final long hedgeDelayMillis) {
+        if (hedgeDelayMillis < 0) {
+            throw new IllegalArgumentException("Hedge delay must not be negative");
+        }
+        this.hedgeDelayMillis = hedgeDelayMillis;
+    }
+
+    @Override
+    public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+        return getResolver().resolve(fqdn, executor, callback);
+    }
+
+    /**
+     * Returns the name of the backend selected for this device
+     */
+    @Override
+    public String getName() {
+        return getResolver().getName();
+    }
+
+    /**
+     * Selects the backend and prepares it
+     */
+    @Override
+    public void warmUp() {
+        getResolver().warmUp();
+    }
+
+    /**
+     * Flushes the cache of the backend, if it was selected already
+     */
+    @Override
+    public void flushCache() {
+        final TxtResolver selected = resolver;
+        if (selected != null) {
+            selected.flushCache();
+        }
+    }
+
+    private TxtResolver getResolver() {
+        TxtResolver selected = resolver;
+        if (selected == null) {
+            synchronized (this) {
+                selected = resolver;
+                if (selected == null) {
+                    selected = selectBackend();
+                    resolver = selected;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private TxtResolver selectBackend() {
+        Trace.beginSection("ESL4A select backend");
+        try {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+                return new MinidnsTxtResolver(MinidnsSetup::getDnssecResolverApi);
+            }
+            if (hedgeDelayMillis == NO_HEDGING) {
+                return new AndroidDnsTxtResolver();
+            }
+            return new HedgedTxtResolver(hedgeDelayMillis, new AndroidDnsTxtResolver(), new MinidnsTxtResolver(MinidnsSetup::getDnssecResolverApi));
+        } finally {
+            Trace.endSection();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import static org.mockito.ArgumentMatchers.anyString;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.minidns.dnsmessage.DnsMessage;
+import org.minidns.hla.DnssecResolverApi;
+import org.minidns.hla.ResolverResult;
+import org.minidns.record.Data;
+import org.minidns.record.Record;
+import org.minidns.record.TXT;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+/**
+ * Base of the tests resolving with a {@link ServiceLocatorV9} whose minidns resolver is mocked
+ */
+abstract class AbstractServiceLocatorV9TestTest extends AbstractServiceLocatorTestTest {
+
+    protected void initServiceLocatorV9(final AbstractServiceLocator serviceLocator, boolean withRecords)
+            throws ReflectiveOperationException, java.io.IOException {
+        Field dnssecResolverApi = MinidnsTxtResolver.class.getDeclaredField("dnssecResolverApi");
+        dnssecResolverApi.setAccessible(true);
+        DnssecResolverApi dnssecResolverApiMock = Mockito.mock(DnssecResolverApi.class);
+        dnssecResolverApi.set(getResolver(serviceLocator), dnssecResolverApiMock);
+
+        ResolverResult<TXT> resultTxt = Mockito.mock(ResolverResult.class);
+        Set<TXT> resultTxtAnswers = new HashSet<>();
+        List<Record<? extends Data>> answerSection = new ArrayList<>();
+        if (withRecords) {
+            TXT txt = new TXT(txtBlob(RECORD_TXT));
+            resultTxtAnswers.add(txt);
+            answerSection.add(new Record<>(FQDN, Record.TYPE.TXT, Record.CLASS.IN, TTL, txt, false));
+        }
+        Mockito.when(resultTxt.getAnswers()).thenReturn(resultTxtAnswers);
+        DnsMessage dnsMessage = Mockito.mock(DnsMessage.class);
+        setFinalField(DnsMessage.class, "answerSection", answerSection, dnsMessage);
+        Mockito.when(resultTxt.getRawAnswer()).thenReturn(dnsMessage);
+        Mockito.when(dnssecResolverApiMock.resolve(anyString(), ArgumentMatchers.<Class<TXT>> any())).thenReturn(resultTxt);
+    }
+
+    protected static DnssecResolverApi getDnssecResolverApi(final AbstractServiceLocator serviceLocator) throws ReflectiveOperationException {
+        final Field dnssecResolverApi = MinidnsTxtResolver.class.getDeclaredField("dnssecResolverApi");
+        dnssecResolverApi.setAccessible(true);
+        return (DnssecResolverApi) dnssecResolverApi.get(getResolver(serviceLocator));
+    }
+
+    private static Object getResolver(final AbstractServiceLocator serviceLocator) throws ReflectiveOperationException {
+        final Field resolver = ResolverServiceLocator.class.getDeclaredField("resolver");
+        resolver.setAccessible(true);
+        return resolver.get(serviceLocator);
+    }
+}
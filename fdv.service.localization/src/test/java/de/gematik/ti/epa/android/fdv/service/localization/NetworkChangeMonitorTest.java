@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2020 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.ti.epa.android.fdv.service.localization;
+
+import static org.awaitility.Awaitility.await;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.awaitility.Duration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
+import de.gematik.ti.epa.fdv.service.localization.api.ServiceInterfaceName;
+
+/**
+ * Test {@link NetworkChangeMonitor} with network transitions reported by a mocked {@link ConnectivityManager}
+ */
+public class NetworkChangeMonitorTest extends AbstractServiceLocatorTestTest {
+
+    private final ConnectivityManager connectivityManager = Mockito.mock(ConnectivityManager.class);
+    private final Network wifi = Mockito.mock(Network.class);
+    private final Network cellular = Mockito.mock(Network.class);
+    private final Network vpn = Mockito.mock(Network.class);
+    private final AtomicInteger changes = new AtomicInteger();
+    private NetworkChangeMonitor monitor;
+
+    @Before
+    public void init() {
+        monitor = new NetworkChangeMonitor(connectivityManager, changes::incrementAndGet);
+    }
+
+    @Test
+    public void firstNetworkIsNoChange() {
+        start().onAvailable(wifi);
+
+        Assert.assertEquals(0, changes.get());
+    }
+
+    @Test
+    public void switchToOtherNetworkIsChange() {
+        final ConnectivityManager.NetworkCallback callback = start();
+        callback.onAvailable(wifi);
+        callback.onAvailable(cellular);
+        callback.onLost(wifi);
+        callback.onAvailable(vpn);
+
+        Assert.assertEquals(2, changes.get());
+    }
+
+    @Test
+    public void changedDnsServersIsChange() {
+        start();
+        monitor.onDefaultNetwork(wifi, dnsServers(10));
+        monitor.onDefaultNetwork(wifi, dnsServers(10));
+        Assert.assertEquals(0, changes.get());
+
+        monitor.onDefaultNetwork(wifi, dnsServers(11));
+        Assert.assertEquals(1, changes.get());
+    }
+
+    @Test
+    public void stoppedMonitorIgnoresEvents() {
+        final ConnectivityManager.NetworkCallback callback = start();
+        callback.onAvailable(wifi);
+
+        monitor.stop();
+        callback.onAvailable(cellular);
+
+        Assert.assertEquals(0, changes.get());
+        Mockito.verify(connectivityManager).unregisterNetworkCallback(callback);
+    }
+
+    @Test
+    public void networkChangeResolvesAgainWhileServingOldTable() {
+        final List<TxtResolver.Callback> queries = new CopyOnWriteArrayList<>();
+        final ServiceLocatorRegistry registry = new ServiceLocatorRegistry(new TxtResolver() {
+
+            @Override
+            public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+                queries.add(callback);
+                if (queries.size() == 1) {
+                    callback.onAnswer(answer());
+                }
+                return Cancellable.NONE;
+            }
+        });
+        registry.lookup(FQDN, null);
+        Assert.assertEquals(LookupStatus.SUCCESS, registry.getLookupStatus(FQDN));
+        monitor = new NetworkChangeMonitor(connectivityManager, registry::networkChanged);
+        final ConnectivityManager.NetworkCallback callback = start();
+
+        callback.onAvailable(wifi);
+        callback.onAvailable(cellular);
+        callback.onAvailable(vpn);
+
+        await().atMost(Duration.FIVE_SECONDS).until(() -> queries.size() == 2);
+        Assert.assertEquals(LookupStatus.IN_PROGRESS, registry.getLookupStatus(FQDN));
+        Assert.assertNotNull(registry.endpointURLForInterface(FQDN, ServiceInterfaceName.I_DOCUMENT_MANAGEMENT_INSURANT));
+        queries.get(1).onAnswer(answer());
+        Assert.assertEquals(LookupStatus.SUCCESS, registry.getLookupStatus(FQDN));
+        Assert.assertEquals(2, queries.size());
+    }
+
+    @Test
+    public void networkChangeFlushesResolverCacheBeforeResolvingAgain() {
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        final ServiceLocatorRegistry registry = new ServiceLocatorRegistry(new TxtResolver() {
+
+            @Override
+            public Cancellable resolve(final String fqdn, final Executor executor, final Callback callback) {
+                calls.add("resolve");
+                callback.onAnswer(answer());
+                return Cancellable.NONE;
+            }
+
+            @Override
+            public void flushCache() {
+                calls.add("flush");
+            }
+        });
+        registry.lookup(FQDN, null);
+        monitor = new NetworkChangeMonitor(connectivityManager, registry::networkChanged);
+        final ConnectivityManager.NetworkCallback callback = start();
+
+        callback.onAvailable(wifi);
+        callback.onAvailable(cellular);
+
+        await().atMost(Duration.FIVE_SECONDS).until(() -> calls.size() == 3);
+        Assert.assertEquals(Arrays.asList("resolve", "flush", "resolve"), calls);
+    }
+
+    private ConnectivityManager.NetworkCallback start() {
+        monitor.start();
+        final ArgumentCaptor<ConnectivityManager.NetworkCallback> callback = ArgumentCaptor.forClass(ConnectivityManager.NetworkCallback.class);
+        Mockito.verify(connectivityManager).registerDefaultNetworkCallback(callback.capture());
+        return callback.getValue();
+    }
+
+    private static List<InetAddress> dnsServers(final int lastByte) {
+        try {
+            return Collections.singletonList(InetAddress.getByAddress(new byte[] { 10, 0, 0, (byte) lastByte }));
+        } catch (final UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TxtAnswer answer() {
+        final TxtAnswer txtAnswer = new TxtAnswer();
+        final byte[] blob = txtBlob(RECORD_TXT);
+        txtAnswer.add(blob, 0, blob.length, TTL);
+        return txtAnswer;
+    }
+}
@@ -25,7 +25,7 @@ import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
 
 import static org.awaitility.Awaitility.await;
 
-public class ServiceLocatorTest extends AbstractServiceLocatorTestTest {
+public class ServiceLocatorTest extends AbstractServiceLocatorV9TestTest {
 
     private ServiceLocator serviceLocator;
     private boolean ready = false;
@@ -35,10 +35,9 @@ public class ServiceLocatorTest extends AbstractServiceLocatorTestTest {
         callback = lookupStatus -> {
             ready = true;
         };
-        serviceLocator = new ServiceLocator();
         AbstractServiceLocator abstractServiceLocator = new ServiceLocatorV9();
         initServiceLocatorV9(abstractServiceLocator,true);
-        setFinalField(ServiceLocator.class, "abstractServiceLocator", abstractServiceLocator, serviceLocator);
+        serviceLocator = new ServiceLocator(new ServiceLocatorRegistry(() -> abstractServiceLocator, null));
     }
 
     @Test
@@ -47,6 +46,12 @@ public class ServiceLocatorTest extends AbstractServiceLocatorTestTest {
         checkUrls(serviceLocator);
     }
 
+    @Test
+    public void notStartedBeforeLookup() {
+        Assert.assertEquals(LookupStatus.NOT_STARTED, serviceLocator.getLookupStatus());
+        Assert.assertNull(serviceLocator.getHomeCommunityId());
+    }
+
     @Test
     public void getLookupStatus() {
         lookup();
@@ -17,7 +17,6 @@
 package de.gematik.ti.epa.android.fdv.service.localization;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
@@ -51,9 +50,7 @@ public class ServiceLocatorV10CallbackTest extends AbstractServiceLocatorTestTes
 
         serviceLocator = new ServiceLocatorV10();
 
-        Method initializeResolverCallback = ServiceLocatorV10.class.getDeclaredMethod("initializeResolverCallback", Consumer.class);
-        initializeResolverCallback.setAccessible(true);
-        dnsCallback = (DnsResolver.Callback<? super byte[]>) initializeResolverCallback.invoke(serviceLocator, callback2);
+        dnsCallback = AndroidDnsTxtResolver.initializeResolverCallback(((ResolverServiceLocator) serviceLocator).newResolverCallback(callback2));
 
     }
 
@@ -27,7 +27,7 @@ import org.junit.Test;
 
 import de.gematik.ti.epa.fdv.service.localization.api.LookupStatus;
 
-public class ServiceLocatorV9Test extends AbstractServiceLocatorTestTest {
+public class ServiceLocatorV9Test extends AbstractServiceLocatorV9TestTest {
     private AtomicReference<LookupStatus> reveivedCallBack;
 
     @Before